@@ -0,0 +1,110 @@
+
+import java.io.*;
+
+import core_lib.*;
+import generator_lib.GeneratorOutput;
+import simulator_lib.SimulatorInput;
+
+/**
+ * TraceConverter is a driver program that rewrites a trace file in either
+ * the textual or the compact binary format. The input format is detected
+ * automatically; the network, libraries, transactions and generation seed
+ * are carried over unchanged.
+ */
+public class TraceConverter{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * The filename/path of the *.trace file to be read
+	 */
+	private static String INPUT;
+
+	/**
+	 * The filename/path of the *.trace file to be written
+	 */
+	private static String OUTPUT;
+
+	/**
+	 * Whether the output is written in the binary (or textual) format
+	 */
+	private static boolean BINARY;
+
+	// ************************** PUBLIC METHODS *****************************	
+
+	/**
+	 * The main driver method.
+	 * @param args See the enclosed README document for usage information
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException{
+		parse_arguments(args);
+
+			// Read the header, users and libraries from the input trace;
+			// no feedback occurs here, so relations are stored sparsely
+		SimulatorInput In = new SimulatorInput(INPUT);
+		Globals GLOBALS = In.parseGlobals();
+		Network nw = new Network(GLOBALS, true);
+		In.parseUsers(nw);
+		In.parseLibraries(nw);
+
+			// Write them back out in the requested format
+		GeneratorOutput Out = new GeneratorOutput(OUTPUT, GLOBALS, BINARY, 
+				false);
+		Out.writeHeader(In.getGenSeed());
+		Out.writeUsers(nw);
+		Out.writeLibraries(nw);
+
+		for(int i=0; i < (GLOBALS.NUM_TRANS + GLOBALS.WARMUP); i++)
+			Out.writeTrans(In.parseNextTransaction());
+		System.out.print("Transaction conversion complete...\n");
+		System.out.printf("Done! Output written to %s\n\n", OUTPUT);
+
+		In.shutdown();
+		Out.shutdown();
+		return;
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Parse the command-line arguments provided to the main() method.
+	 * @param args See the enclosed README document for usage information
+	 */
+	private static void parse_arguments(String[] args){
+		if(args.length != 6){
+			System.out.print("\nInvalid # of arguments. Aborting.\n\n");
+			System.exit(1);
+		} // Check the number of arguments
+
+		String FORMAT = "";
+		for(int i=1; i < args.length; i+=2){
+			if(args[i-1].equalsIgnoreCase("-input"))
+				INPUT = args[i];
+			else if(args[i-1].equalsIgnoreCase("-output"))
+				OUTPUT = args[i];
+			else if(args[i-1].equalsIgnoreCase("-format"))
+				FORMAT = args[i];
+			else{
+				System.out.print("\nInvalid argument(s). Aborting.\n\n");
+				System.exit(1);
+			} // Catch any unsupported arguments
+		} // Parse all arguments
+
+		if(FORMAT.equalsIgnoreCase("binary"))
+			BINARY = true;
+		else if(FORMAT.equalsIgnoreCase("text"))
+			BINARY = false;
+		else{
+			System.out.print("\nError: Format must be 'binary' or 'text'. " +
+					"Aborting.\n\n");
+			System.exit(1);
+		} // Determine the output format
+
+		if((INPUT == null) || (OUTPUT == null) || INPUT.equals(OUTPUT)){
+			System.out.print("\nError: Distinct input and output files are " +
+					"required. Aborting.\n\n");
+			System.exit(1);
+		} // Make sure the trace isn't overwritten while being read
+	}
+}
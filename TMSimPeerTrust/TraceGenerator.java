@@ -2,6 +2,7 @@
 import core_lib.*;
 import generator_lib.GeneratorOutput;
 import generator_lib.GeneratorUtils;
+import generator_lib.ShardedGenerator;
 
 import java.io.*;
 
@@ -17,6 +18,26 @@ public class TraceGenerator{
 	 * The filename/path of the *.trace file to be written
 	 */
 	private static String OUTPUT;
+	
+	/**
+	 * Whether the trace is written in the compact binary format
+	 */
+	private static boolean BINARY = false;
+	
+	/**
+	 * Whether trace output is written by a background thread
+	 */
+	private static boolean ASYNC_IO = false;
+	
+	/**
+	 * Whether initial libraries are generated by sparse sampling
+	 */
+	private static boolean SPARSE_INIT = false;
+	
+	/**
+	 * Number of shards for parallel generation (at most 1: sequential)
+	 */
+	private static int SHARDS = 1;
 
 	// ************************** PUBLIC METHODS *****************************	
 	
@@ -30,25 +51,40 @@ public class TraceGenerator{
 			// Parse the parameters into a Global object
 		final Globals GLOBALS = parse_arguments(args);
 		
-			// Open object to print to trace, and write header
-		GeneratorOutput Trace = new GeneratorOutput(OUTPUT, GLOBALS);
+			// Open object to print to trace, and write header; parallel
+			// generation always overlaps with a background writer
+		GeneratorOutput Trace = new GeneratorOutput(OUTPUT, GLOBALS, BINARY, 
+				ASYNC_IO || (SHARDS > 1));
 		Trace.writeHeader();
 		
-			// Initialize the network object with passed parameters
-		Network nw = new Network(GLOBALS);
+			// Initialize the network object; no feedback occurs here, so
+			// relations are stored sparsely and never allocated
+		Network nw = new Network(GLOBALS, true);
 			
 			// Do the User initializations and print them to trace
 		GeneratorUtils Generator = new GeneratorUtils(nw, GLOBALS);
-		Generator.generateUsers();
+		ShardedGenerator Sharded = null;
+		if(SHARDS > 1){
+			Sharded = new ShardedGenerator(nw, GLOBALS, SHARDS);
+			Sharded.generateUsers();
+		} else
+			Generator.generateUsers();
 		Trace.writeUsers(nw);
 		
 			// Then, create and output initial libraries
-		Generator.generateInitLibs();
+		if(Sharded != null)
+			Sharded.generateInitLibs(SPARSE_INIT);
+		else if(SPARSE_INIT)
+			Generator.generateInitLibsSparse();
+		else
+			Generator.generateInitLibs();
 		Trace.writeLibraries(nw);
 		
 		for(int i=0; i < (GLOBALS.NUM_TRANS + GLOBALS.WARMUP); i++){
 			if(GLOBALS.SMART_GEN)
 				Trace.writeTrans(Generator.genTransactionSmart());
+			else if(Sharded != null)
+				Trace.writeTrans(Sharded.genTransactionNaive());
 			else
 				Trace.writeTrans(Generator.genTransactionNaive());
 		} // Generate and print transactions, per mode parameter
@@ -87,6 +123,7 @@ public class TraceGenerator{
 		int BAND_PER = 1;
 		int WARMUP = 0;
 		boolean SMART_GEN = true;
+		long SEED = System.currentTimeMillis();
 		OUTPUT = "trace_0.trace";
 
 		for(int i=1; i < args.length; i+=2){
@@ -118,6 +155,16 @@ public class TraceGenerator{
 				WARMUP = Integer.parseInt(args[i]);
 			else if(args[i-1].equalsIgnoreCase("-mode:smartgen"))
 				SMART_GEN = Boolean.parseBoolean(args[i]);
+			else if(args[i-1].equalsIgnoreCase("-mode:binary"))
+				BINARY = Boolean.parseBoolean(args[i]);
+			else if(args[i-1].equalsIgnoreCase("-mode:async_io"))
+				ASYNC_IO = Boolean.parseBoolean(args[i]);
+			else if(args[i-1].equalsIgnoreCase("-mode:sparseinit"))
+				SPARSE_INIT = Boolean.parseBoolean(args[i]);
+			else if(args[i-1].equalsIgnoreCase("-mode:shards"))
+				SHARDS = Integer.parseInt(args[i]);
+			else if(args[i-1].equalsIgnoreCase("-seed"))
+				SEED = Long.parseLong(args[i]);
 			else if(args[i-1].equalsIgnoreCase("-output"))
 				OUTPUT = args[i];
 			else{
@@ -147,6 +194,6 @@ public class TraceGenerator{
 		
 		return(new Globals(NUM_USERS, NUM_FILES, NUM_TRANS, ZIPF, 
 				PRE_TRUSTED, USR_GOOD, USR_PURE, USR_FEED, USR_PROV, USR_DISG, 
-				USR_SYBL, BAND_MAX, BAND_PER, WARMUP, SMART_GEN));
+				USR_SYBL, BAND_MAX, BAND_PER, WARMUP, SMART_GEN, SEED));
 	}
 }
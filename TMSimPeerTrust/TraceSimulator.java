@@ -19,7 +19,8 @@ public class TraceSimulator{
 	/**
 	 * The TSYS enumeration lists the implemented TM algorithms.
 	 */
-	private enum TSYS{NONE, EIGEN, ET_INC, TNA_SL, MYTRUST, PEERTRUST, THRESHOLDTRUST};
+	private enum TSYS{NONE, EIGEN, EIGEN_WARM, EIGEN_PUSH, ET_INC, TNA_SL, 
+		TNA_SL_INC, MYTRUST, PEERTRUST, THRESHOLDTRUST};
 	
 	/**
 	 * The path/filename of the input trace file.
@@ -40,6 +41,26 @@ public class TraceSimulator{
 	 * Malicious strategy being applied during this simulation
 	 */
 	private static SimulatorMalicious.MAL_STRATEGY STRATEGY;
+	
+	/**
+	 * Number of threads trust computations may use (optional; default 1).
+	 */
+	private static int THREADS = 1;
+	
+	/**
+	 * Whether Relations are stored sparsely (optional; default dense).
+	 */
+	private static boolean SPARSE_RELATIONS = false;
+	
+	/**
+	 * Whether BEST/WORST sources are found via trust orders (default: no).
+	 */
+	private static boolean ORDERED_SOURCES = false;
+	
+	/**
+	 * Number of independent malicious collectives (optional; default 1).
+	 */
+	private static int COLLECTIVES = 1;
 
 	// ************************** PUBLIC METHODS *****************************
 
@@ -53,13 +74,17 @@ public class TraceSimulator{
 		
 		long start_time = System.currentTimeMillis();
 		parse_arguments(args);
+		TrustPool.setThreads(THREADS);
 		
 			// Open the input file, and read off global variables
 		SimulatorInput Trace = new SimulatorInput(FILE_NAME);
 		Globals GLOBALS = Trace.parseGlobals();
 		
 			// Create the network and add static trace data to it
-		Network nw = new Network(GLOBALS);
+		Network nw = new Network(GLOBALS, SPARSE_RELATIONS);
+		if(ORDERED_SOURCES)
+			nw.enableTrustOrder();
+		nw.setCollectives(COLLECTIVES);
 		Trace.parseUsers(nw);
 		Trace.parseLibraries(nw);
 		System.out.print("\nTrace file parsed and static initialization " +
@@ -71,10 +96,16 @@ public class TraceSimulator{
 			// Set and construct the TM managing the Network
 		if(TSYSTEM == TSYS.EIGEN)
 			TALG = new EigenTM(nw);
+		else if(TSYSTEM == TSYS.EIGEN_WARM)
+			TALG = new EigenTM(nw, EigenTM.Solver.WARM);
+		else if(TSYSTEM == TSYS.EIGEN_PUSH)
+			TALG = new EigenTM(nw, EigenTM.Solver.PUSH);
 		else if(TSYSTEM == TSYS.ET_INC)
 			TALG = new EtIncTM(nw);
 		else if(TSYSTEM == TSYS.TNA_SL)
 			TALG = new TnaSlTM(nw);
+		else if(TSYSTEM == TSYS.TNA_SL_INC)
+			TALG = new TnaSlTM(nw, true);
 		else if(TSYSTEM == TSYS.NONE)
 			TALG = new NoneTM(nw);
 		else if(TSYSTEM == TSYS.MYTRUST)
@@ -116,14 +147,26 @@ public class TraceSimulator{
 		FILE_NAME = FILE_NAME.substring(0, FILE_NAME.lastIndexOf('.')+1);
 		FILE_NAME = FILE_NAME.concat(TALG.fileExtension());
 		SimulatorOutput Output = new SimulatorOutput(FILE_NAME);
-		Output.printHeader(GLOBALS, Trace.getGenSeed(), TALG, STRATEGY);
+		Output.printHeader(nw, Trace.getGenSeed(), TALG, STRATEGY);
 		Output.printStatistics(nw.GLOBALS, nw.STATS);
 		
 			// Calculate runtime and print final notes to terminal
 		long stop_time = System.currentTimeMillis();
 		double run_time = ((stop_time - start_time) / 1000.0); 
 		System.out.printf("Run complete! Data written to %s\n", FILE_NAME);
-		System.out.printf("Simulation runtime: %f secs\n\n", run_time);
+		System.out.printf("Simulation runtime: %f secs\n", run_time);
+		if(TALG instanceof EigenTM){
+			EigenTM eigen = (EigenTM)TALG;
+			System.out.printf("Solver iterations: %d solves, %d multiplies, " +
+					"%d pushes\n", eigen.getSolveCount(), 
+					eigen.getMultiplyCount(), eigen.getPushCount());
+		} else if(TALG instanceof TnaSlTM){
+			TnaSlTM tnasl = (TnaSlTM)TALG;
+			System.out.printf("Solver iterations: %d full computations, " +
+					"%d row relaxations\n", tnasl.getFullCount(), 
+					tnasl.getRelaxCount());
+		} // Report solver effort, so incremental modes can be compared
+		System.out.print("\n");
 		
 			// Cleanup and exit
 		Trace.shutdown();
@@ -138,7 +181,7 @@ public class TraceSimulator{
 	 * @param args See the enclosed README document for usage information
 	 */
 	private static void parse_arguments(String[] args){
-		if(args.length != 6){
+		if((args.length < 6) || (args.length % 2 != 0)){
 			System.out.print("\nInvalid # of arguments. Aborting.\n\n");
 			System.exit(1);
 		} // Check the number of arguments
@@ -151,6 +194,10 @@ public class TraceSimulator{
 					TSYSTEM = TSYS.EIGEN;
 				else if(args[i].equalsIgnoreCase("eigentrust"))
 					TSYSTEM = TSYS.EIGEN;
+				else if(args[i].equalsIgnoreCase("eigen_warm"))
+					TSYSTEM = TSYS.EIGEN_WARM;
+				else if(args[i].equalsIgnoreCase("eigen_push"))
+					TSYSTEM = TSYS.EIGEN_PUSH;
 				else if(args[i].equalsIgnoreCase("et_inc"))
 					TSYSTEM = TSYS.ET_INC;
 				else if(args[i].equalsIgnoreCase("etinc"))
@@ -159,6 +206,8 @@ public class TraceSimulator{
 					TSYSTEM = TSYS.TNA_SL;
 				else if(args[i].equalsIgnoreCase("tnasl"))
 					TSYSTEM = TSYS.TNA_SL;
+				else if(args[i].equalsIgnoreCase("tnasl_inc"))
+					TSYSTEM = TSYS.TNA_SL_INC;
 				else if(args[i].equalsIgnoreCase("mytrust"))
 					TSYSTEM = TSYS.MYTRUST;
 				else if(args[i].equalsIgnoreCase("peertrust"))
@@ -174,11 +223,24 @@ public class TraceSimulator{
 					STRATEGY = SimulatorMalicious.MAL_STRATEGY.COLLECTIVE;
 				else // if(args[i].equalsIgnoreCase("naive"))
 					STRATEGY = SimulatorMalicious.MAL_STRATEGY.NAIVE;
+			} else if(args[i-1].equalsIgnoreCase("-threads")){
+				THREADS = Integer.parseInt(args[i]);
+			} else if(args[i-1].equalsIgnoreCase("-relations")){
+				SPARSE_RELATIONS = args[i].equalsIgnoreCase("sparse");
+			} else if(args[i-1].equalsIgnoreCase("-collectives")){
+				COLLECTIVES = Integer.parseInt(args[i]);
+			} else if(args[i-1].equalsIgnoreCase("-sources")){
+				ORDERED_SOURCES = args[i].equalsIgnoreCase("ordered");
 			} else{ 
 				System.out.print("\nRequired argument missing. Aborting.\n\n");
 				System.exit(1);
 			} // Neither '-input' or '-trust_sys' should be omitted
 		} // Parse arguments. Check for required flags.
+		
+		if((FILE_NAME == null) || (TSYSTEM == null) || (STRATEGY == null)){
+			System.out.print("\nRequired argument missing. Aborting.\n\n");
+			System.exit(1);
+		} // Optional flags must not displace required ones
 	}
 	
 }
@@ -1,13 +1,13 @@
 
 package core_lib;
 
-import java.util.*;
-
 /**
  * The BWidthUnit class helps manage bandwidth at the user level. It consists
- * of a queue of type integer. The number of entries in that queue represents
- * the number of occupied connections, saturating at GLOBALS.BAND_MAX. The
- * queue entry value indicates at which cycle that connection can be freed.
+ * of a ring buffer of integers. The number of entries in that buffer
+ * represents the number of occupied connections, saturating at
+ * GLOBALS.BAND_MAX. The entry value indicates at which cycle that connection
+ * can be freed. Since every connection lasts GLOBALS.BAND_PER cycles, entries
+ * expire in the order they were added.
  */
 public class BWidthUnit{
 	
@@ -19,9 +19,19 @@ public class BWidthUnit{
 	private Globals GLOBALS;
 	
 	/**
-	 * Cycle number at which each connection can be freed.
+	 * Cycle number at which each connection can be freed, as a ring buffer.
+	 */
+	private int[] ring;
+
+	/**
+	 * Position in 'ring' of the oldest connection.
+	 */
+	private int head;
+
+	/**
+	 * Number of connections currently occupied.
 	 */
-	private Queue<Integer> queue;
+	private int size;
 	
 	// *************************** CONSTRUCTORS ******************************
 	
@@ -31,7 +41,9 @@ public class BWidthUnit{
 	 */
 	public BWidthUnit(Globals GLOBALS){
 		this.GLOBALS = GLOBALS;
-		queue = new LinkedList<Integer>();
+		ring = new int[Math.max(GLOBALS.BAND_MAX, 1)];
+		head = 0;
+		size = 0;
 	}
 	
 	// ************************** PUBLIC METHODS *****************************
@@ -42,11 +54,11 @@ public class BWidthUnit{
 	 * @return TRUE if bandwidth is available; FALSE otherwise
 	 */
 	public boolean available(int cycle){
-		if(queue.peek() != null){
-			if(queue.peek() <= cycle)
-				queue.remove();
-		} // If a connection is atop the queue, see if it is ready for removal
-		if(queue.size() < GLOBALS.BAND_MAX)
+		while((size > 0) && (ring[head] <= cycle)){
+			head = (head + 1) % ring.length;
+			size--;
+		} // Free every connection that has finished by this cycle
+		if(size < GLOBALS.BAND_MAX)
 			return true;
 		else 
 			return false;
@@ -57,7 +69,15 @@ public class BWidthUnit{
 	 * @param cycle The cycle at which this connection begins.
 	 */
 	public void consume(int cycle){
-		queue.add(cycle + GLOBALS.BAND_PER);
+		if(size == ring.length){
+			int[] grown = new int[ring.length * 2];
+			for(int i=0; i < size; i++)
+				grown[i] = ring[(head + i) % ring.length];
+			ring = grown;
+			head = 0;
+		} // Only reachable if consumed without checking availability
+		ring[(head + size) % ring.length] = cycle + GLOBALS.BAND_PER;
+		size++;
 		return;
 	}
 }
\ No newline at end of file
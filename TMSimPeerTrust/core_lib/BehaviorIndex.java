@@ -0,0 +1,134 @@
+package core_lib;
+
+import java.util.BitSet;
+
+/**
+ * The BehaviorIndex class records which Users of a Network follow which
+ * behavior model, and how malicious (non-good) users are grouped into
+ * colluding collectives. It is built once from the User library, so
+ * per-transaction behavior tests become bit lookups rather than repeated
+ * model comparisons. Malicious users are dealt round-robin, in order of
+ * identifier, into a fixed number of independent collectives.
+ */
+public class BehaviorIndex{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Per behavior model (by ordinal), the set of users following it.
+	 */
+	private BitSet[] by_model;
+
+	/**
+	 * Collective to which each user belongs, or -1 for good users.
+	 */
+	private int[] collective_of;
+
+	/**
+	 * Members of each collective, in ascending order of identifier.
+	 */
+	private int[][] collectives;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a BehaviorIndex over a fully populated User library.
+	 * @param nw Network whose Users are to be indexed
+	 * @param num_collectives Number of independent malicious collectives
+	 */
+	public BehaviorIndex(Network nw, int num_collectives){
+		int num_users = nw.GLOBALS.NUM_USERS;
+		User.Behavior[] models = User.Behavior.values();
+		by_model = new BitSet[models.length];
+		for(int m=0; m < models.length; m++)
+			by_model[m] = new BitSet(num_users);
+		for(int i=0; i < num_users; i++)
+			by_model[nw.getUser(i).getModel().ordinal()].set(i);
+
+		num_collectives = Math.max(1, num_collectives);
+		int malicious = num_users - count(User.Behavior.USR_GOOD);
+		collectives = new int[num_collectives][];
+		for(int c=0; c < num_collectives; c++)
+			collectives[c] = new int[(malicious + num_collectives - 1 - c) /
+					num_collectives];
+		collective_of = new int[num_users];
+		int dealt = 0, group;
+		for(int i=0; i < num_users; i++){
+			if(isGood(i)){
+				collective_of[i] = -1;
+				continue;
+			} // Good users never collude
+			group = dealt % num_collectives;
+			collectives[group][dealt / num_collectives] = i;
+			collective_of[i] = group;
+			dealt++;
+		} // Deal malicious users round-robin into collectives
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Query whether a user follows a given behavior model.
+	 * @param user_num Numerical user identifier
+	 * @param model Behavior model being tested
+	 * @return TRUE if 'user_num' follows 'model'; else FALSE
+	 */
+	public boolean is(int user_num, User.Behavior model){
+		return (this.by_model[model.ordinal()].get(user_num));
+	}
+
+	/**
+	 * Query whether a user is good (i.e., not malicious).
+	 * @param user_num Numerical user identifier
+	 * @return TRUE if 'user_num' follows the USR_GOOD model; else FALSE
+	 */
+	public boolean isGood(int user_num){
+		return (this.by_model[User.Behavior.USR_GOOD.ordinal()].get(user_num));
+	}
+
+	/**
+	 * The number of users following a given behavior model.
+	 * @param model Behavior model being counted
+	 * @return Number of users following 'model'
+	 */
+	public int count(User.Behavior model){
+		return (this.by_model[model.ordinal()].cardinality());
+	}
+
+	/**
+	 * The number of independent malicious collectives.
+	 * @return Number of collectives (at least one, possibly empty)
+	 */
+	public int collectiveCount(){
+		return (this.collectives.length);
+	}
+
+	/**
+	 * Access the collective to which a user belongs.
+	 * @param user_num Numerical user identifier
+	 * @return Collective of 'user_num', or -1 if the user is good
+	 */
+	public int collectiveOf(int user_num){
+		return (this.collective_of[user_num]);
+	}
+
+	/**
+	 * The number of users belonging to a collective.
+	 * @param collective Collective being queried
+	 * @return Number of members of 'collective'
+	 */
+	public int collectiveSize(int collective){
+		return (this.collectives[collective].length);
+	}
+
+	/**
+	 * Access a member of a collective.
+	 * @param collective Collective being queried
+	 * @param k Position of the member, on [0..collectiveSize(collective))
+	 * @return Numerical identifier of the k-th member of 'collective'
+	 */
+	public int collectiveMember(int collective, int k){
+		return (this.collectives[collective][k]);
+	}
+
+}
@@ -0,0 +1,70 @@
+package core_lib;
+
+/**
+ * The BinaryTrace class describes the compact binary trace format, written
+ * by the generator and auto-detected by the simulator alongside textual
+ * traces. All sections follow in the same order as in a textual trace:
+ *
+ *   magic     4 bytes, 'T' 'M' 'S' 'B'
+ *   version   1 byte, currently VERSION
+ *   header    varint NUM_USERS, NUM_FILES, NUM_TRANS, BAND_MAX, BAND_PER,
+ *             WARMUP; fixed64 ZIPF; varint PRE_TRUSTED, USR_GOOD, USR_PURE,
+ *             USR_FEED, USR_PROV, USR_DISG, USR_SYBL; 1 byte SMART_GEN;
+ *             fixed64 generator seed
+ *   users     per user: fixed64 cleanup, fixed64 honesty, 1 byte model,
+ *             1 byte pre-trusted
+ *   library   varint copy count; per copy: varint (owner*2 + valid),
+ *             varint file
+ *   trans.    per transaction (WARMUP+NUM_TRANS): varint receiver,
+ *             varint file
+ *
+ * Varints are unsigned LEB128 (7 bits per byte, low bits first); fixed64
+ * values are big-endian, doubles by their IEEE-754 bit pattern.
+ */
+public class BinaryTrace{
+
+	// ************************** PUBLIC FIELDS ******************************
+
+	/**
+	 * Leading bytes identifying a binary trace. Textual traces begin with a
+	 * digit, so the two can never be confused.
+	 */
+	public static final byte[] MAGIC = {'T', 'M', 'S', 'B'};
+
+	/**
+	 * Version of the binary layout written by this code.
+	 */
+	public static final int VERSION = 1;
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Encode a non-negative value as a varint.
+	 * @param value Value to be encoded
+	 * @param dest Buffer receiving the encoding (needs 10 bytes free)
+	 * @param pos Position in 'dest' at which to begin
+	 * @return Position in 'dest' just past the encoding
+	 */
+	public static int putVarint(long value, byte[] dest, int pos){
+		while((value & ~0x7FL) != 0){
+			dest[pos++] = (byte)((value & 0x7F) | 0x80);
+			value >>>= 7;
+		} // Emit seven bits at a time, flagging continuation
+		dest[pos++] = (byte)value;
+		return pos;
+	}
+
+	/**
+	 * Encode a value as eight big-endian bytes.
+	 * @param value Value to be encoded
+	 * @param dest Buffer receiving the encoding (needs 8 bytes free)
+	 * @param pos Position in 'dest' at which to begin
+	 * @return Position in 'dest' just past the encoding
+	 */
+	public static int putFixed64(long value, byte[] dest, int pos){
+		for(int shift=56; shift >= 0; shift -= 8)
+			dest[pos++] = (byte)(value >>> shift);
+		return pos;
+	}
+
+}
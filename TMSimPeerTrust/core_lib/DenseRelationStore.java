@@ -0,0 +1,186 @@
+package core_lib;
+
+import java.util.Arrays;
+
+/**
+ * The DenseRelationStore class holds every Relation in a Network in 
+ * columnar, primitive form: one flat array per field, indexed 
+ * (source*N)+dest. Memory is fixed at 25 bytes per user pair, so some
+ * 10 GB for 20,000 users.
+ */
+public class DenseRelationStore extends RelationStore{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Bytes held per user pair: history, four counts and a trust value.
+	 */
+	private static final int BYTES_PER_PAIR = 25;
+
+	/**
+	 * Feedback history activated on each relation (0=GLOBAL, 1=HONEST).
+	 */
+	private byte[] history;
+
+	/**
+	 * The number of globally broadcast positive feedbacks, per relation.
+	 */
+	private int[] global_pos;
+
+	/**
+	 * The number of globally broadcast negative feedbacks, per relation.
+	 */
+	private int[] global_neg;
+
+	/**
+	 * The number of truly positive interactions, per relation.
+	 */
+	private int[] honest_pos;
+
+	/**
+	 * The number of truly negative interactions, per relation.
+	 */
+	private int[] honest_neg;
+
+	/**
+	 * The trust value characterizing each relation.
+	 */
+	private double[] trust_val;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a DenseRelationStore in which all relations are empty.
+	 * @param num_users Number of users in the Network (N)
+	 */
+	public DenseRelationStore(int num_users){
+		super(num_users);
+		long size = ((long)num_users * num_users);
+		long needed = (size * BYTES_PER_PAIR) >> 20;
+		if((size > (Integer.MAX_VALUE - 8)) || 
+				(needed > (Runtime.getRuntime().maxMemory() >> 20))){
+			System.out.print("\nError: Dense relations for " + num_users + 
+					" users need about " + needed + " MB (" + BYTES_PER_PAIR + 
+					" bytes per pair of users). With '-relations sparse', " +
+					"trust rows alone need about " + ((size * 8) >> 20) + 
+					" MB under per-user algorithms (all but EigenTrust and " +
+					"ET-Incremental). Aborting.\n\n");
+			System.exit(1);
+		} // Java arrays are indexed by integers, and must fit in the heap
+
+		history = new byte[(int)size];
+		global_pos = new int[(int)size];
+		global_neg = new int[(int)size];
+		honest_pos = new int[(int)size];
+		honest_neg = new int[(int)size];
+		trust_val = new double[(int)size];
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Interfaced: Access method to the trust value of a relation.
+	 */
+	public double getTrust(int source, int dest){
+		return (this.trust_val[(source * num_users) + dest]);
+	}
+
+	/**
+	 * Interfaced: Set the trust value of a relation.
+	 */
+	public void setTrust(int source, int dest, double new_trust){
+		int idx = (source * num_users) + dest;
+		double old_trust = trust_val[idx];
+		if(old_trust != new_trust){
+			trust_val[idx] = new_trust;
+			trustChanged(source, dest, old_trust);
+		} // Only genuine changes invalidate the source's trust version
+	}
+
+	/**
+	 * Interfaced: Positive feedbacks in a relation, per its active history.
+	 */
+	public int getPos(int source, int dest){
+		int idx = (source * num_users) + dest;
+		if(historyOf(source, this.history[idx]) == 0)
+			return (this.global_pos[idx]);
+		else // if(this.history[idx] == 1)
+			return (this.honest_pos[idx]);
+	}
+
+	/**
+	 * Interfaced: Negative feedbacks in a relation, per its active history.
+	 */
+	public int getNeg(int source, int dest){
+		int idx = (source * num_users) + dest;
+		if(historyOf(source, this.history[idx]) == 0)
+			return (this.global_neg[idx]);
+		else // if(this.history[idx] == 1)
+			return (this.honest_neg[idx]);
+	}
+
+	/**
+	 * Interfaced: Increment the global-positive feedback count by one.
+	 */
+	public void incGlobalPos(int source, int dest){
+		int idx = touchIndex(source, dest);
+		this.global_pos[idx]++;
+	}
+
+	/**
+	 * Interfaced: Increment the global-negative feedback count by one.
+	 */
+	public void incGlobalNeg(int source, int dest){
+		int idx = touchIndex(source, dest);
+		this.global_neg[idx]++;
+	}
+
+	/**
+	 * Interfaced: Increment the honest-positive interaction count by one.
+	 */
+	public void incHonestPos(int source, int dest){
+		int idx = touchIndex(source, dest);
+		this.honest_pos[idx]++;
+	}
+
+	/**
+	 * Interfaced: Increment the honest-negative interaction count by one.
+	 */
+	public void incHonestNeg(int source, int dest){
+		int idx = touchIndex(source, dest);
+		this.honest_neg[idx]++;
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Interfaced: Record the history of a single relation.
+	 */
+	protected void storeHistory(int source, int dest, byte style){
+		this.history[(source * num_users) + dest] = style;
+	}
+
+	/**
+	 * Interfaced: Record the same history for every relation of a source.
+	 */
+	protected void fillHistory(int source, byte style){
+		int row = source * num_users;
+		Arrays.fill(this.history, row, row + num_users, style);
+	}
+
+	/**
+	 * Compute the flat index of a relation about to receive feedback, 
+	 * recording it as touched if this is its first.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @return Flat index of the relation, (source*N)+dest
+	 */
+	private int touchIndex(int source, int dest){
+		int idx = (source * num_users) + dest;
+		if((global_pos[idx] | global_neg[idx] | honest_pos[idx] | 
+				honest_neg[idx]) == 0)
+			touch(source, dest);
+		return (idx);
+	}
+
+}
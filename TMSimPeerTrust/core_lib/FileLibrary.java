@@ -0,0 +1,240 @@
+package core_lib;
+
+import java.util.Arrays;
+
+/**
+ * The FileLibrary class stores every FileCopy in a Network in primitive form.
+ * Each file keeps its owners and their validities in parallel growable
+ * arrays, in the order copies were added. A primitive open-addressing table
+ * maps each packed (file, owner) pair to the position of its first copy, so
+ * ownership and validity queries need not scan a file's owner list. Memory
+ * thus scales with the number of copies rather than files*users.
+ */
+class FileLibrary{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Marker for an unoccupied hash table position (no valid key is < 0).
+	 */
+	private static final long EMPTY = -1L;
+
+	/**
+	 * Owners of each file's copies, in order of addition.
+	 */
+	private int[][] owners;
+
+	/**
+	 * Validity of each file's copies, parallel to 'owners'.
+	 */
+	private boolean[][] valid;
+
+	/**
+	 * Whether each copy is a repeat, its owner holding an earlier one.
+	 */
+	private boolean[][] repeat;
+
+	/**
+	 * Number of copies stored for each file.
+	 */
+	private int[] copies;
+
+	/**
+	 * Number of files with at least one copy.
+	 */
+	private int available;
+
+	/**
+	 * Packed (file, owner) keys; open-addressing with linear probing.
+	 */
+	private long[] keys;
+
+	/**
+	 * Position, within its file's arrays, of the first copy of each key.
+	 */
+	private int[] positions;
+
+	/**
+	 * Number of distinct (file, owner) pairs held in the hash table.
+	 */
+	private int size;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct an empty FileLibrary.
+	 * @param num_files Number of files in the Network
+	 */
+	FileLibrary(int num_files){
+		owners = new int[num_files][];
+		valid = new boolean[num_files][];
+		repeat = new boolean[num_files][];
+		copies = new int[num_files];
+		available = 0;
+		keys = new long[1024];
+		Arrays.fill(keys, EMPTY);
+		positions = new int[1024];
+		size = 0;
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * The number of copies of a particular file.
+	 * @param file_num Numerical file identifier
+	 * @return Number of copies that exist of file 'file_num'
+	 */
+	int copies(int file_num){
+		return (this.copies[file_num]);
+	}
+
+	/**
+	 * Access the owner of a file copy.
+	 * @param file_num Numerical file identifier
+	 * @param k Position of the copy, on [0..copies(file_num))
+	 * @return Numerical identifier of the k-th copy's owner
+	 */
+	int owner(int file_num, int k){
+		return (this.owners[file_num][k]);
+	}
+
+	/**
+	 * Access the validity of a file copy.
+	 * @param file_num Numerical file identifier
+	 * @param k Position of the copy, on [0..copies(file_num))
+	 * @return Validity of the k-th copy of 'file_num'
+	 */
+	boolean valid(int file_num, int k){
+		return (this.valid[file_num][k]);
+	}
+
+	/**
+	 * Query whether a copy's owner also holds an earlier copy of the file.
+	 * @param file_num Numerical file identifier
+	 * @param k Position of the copy, on [0..copies(file_num))
+	 * @return TRUE if the k-th copy is not its owner's first; else FALSE
+	 */
+	boolean repeat(int file_num, int k){
+		return (this.repeat[file_num][k]);
+	}
+
+	/**
+	 * Find the first copy of a file held by a given user.
+	 * @param file_num Numerical file identifier
+	 * @param user_num Numerical user identifier
+	 * @return Position of the user's first copy of 'file_num', or -1 if none
+	 */
+	int find(int file_num, int user_num){
+		long key = pack(file_num, user_num);
+		int mask = keys.length - 1;
+		int pos = home(key, mask);
+		while(keys[pos] != EMPTY){
+			if(keys[pos] == key)
+				return (positions[pos]);
+			pos = (pos + 1) & mask;
+		} // Linear probing until the key or a gap is found
+		return (-1);
+	}
+
+	/**
+	 * The number of files with at least one copy.
+	 * @return Number of files available in the library
+	 */
+	int available(){
+		return (this.available);
+	}
+
+	/**
+	 * Add a copy of a file to the library.
+	 * @param user_num Numerical user identifier of file owner
+	 * @param file_num Numerical file identifier of file to be added
+	 * @param is_valid Validity of the file being added
+	 */
+	void add(int user_num, int file_num, boolean is_valid){
+		int count = copies[file_num];
+		if(owners[file_num] == null){
+			owners[file_num] = new int[2];
+			valid[file_num] = new boolean[2];
+			repeat[file_num] = new boolean[2];
+			available++;
+		} else if(count == owners[file_num].length){
+			owners[file_num] = Arrays.copyOf(owners[file_num], count * 2);
+			valid[file_num] = Arrays.copyOf(valid[file_num], count * 2);
+			repeat[file_num] = Arrays.copyOf(repeat[file_num], count * 2);
+		} // Grow file storage geometrically when full
+		owners[file_num][count] = user_num;
+		valid[file_num][count] = is_valid;
+		repeat[file_num][count] = !index(file_num, user_num, count);
+		copies[file_num] = count + 1;
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Pack a (file, owner) pair into a single non-negative key.
+	 * @param file_num Numerical file identifier
+	 * @param user_num Numerical user identifier
+	 * @return Key identifying the pair
+	 */
+	private static long pack(int file_num, int user_num){
+		return ((((long)file_num) << 32) | (user_num & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Compute the home position of a key in a hash table.
+	 * @param key Packed (file, owner) key
+	 * @param mask Hash table length, minus one
+	 * @return Position at which probing for 'key' begins
+	 */
+	private static int home(long key, int mask){
+		long mixed = key * 0x9E3779B97F4A7C15L;
+		return ((int)(mixed >>> 32) & mask);
+	}
+
+	/**
+	 * Record the position of a copy, unless its owner already held one.
+	 * @param file_num Numerical file identifier
+	 * @param user_num Numerical user identifier
+	 * @param position Position of the new copy within the file's arrays
+	 * @return TRUE if this is the owner's first copy; else FALSE
+	 */
+	private boolean index(int file_num, int user_num, int position){
+		long key = pack(file_num, user_num);
+		int mask = keys.length - 1;
+		int pos = home(key, mask);
+		while(keys[pos] != EMPTY){
+			if(keys[pos] == key)
+				return false; // Duplicate copies resolve to the first one
+			pos = (pos + 1) & mask;
+		} // Linear probing until the key or a gap is found
+		keys[pos] = key;
+		positions[pos] = position;
+		size++;
+		if((size * 2) > keys.length)
+			rehash();
+		return true;
+	}
+
+	/**
+	 * Double the hash table, keeping its load factor at or below one half.
+	 */
+	private void rehash(){
+		long[] old_keys = keys;
+		int[] old_positions = positions;
+		keys = new long[old_keys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		positions = new int[old_keys.length * 2];
+
+		int mask = keys.length - 1, pos;
+		for(int i=0; i < old_keys.length; i++){
+			if(old_keys[i] == EMPTY)
+				continue;
+			pos = home(old_keys[i], mask);
+			while(keys[pos] != EMPTY)
+				pos = (pos + 1) & mask;
+			keys[pos] = old_keys[i];
+			positions[pos] = old_positions[i];
+		} // Re-insert every occupied position
+	}
+
+}
@@ -121,6 +121,35 @@ public class Globals{
 			int PRE_TRUSTED, int USR_GOOD, int USR_PURE, int USR_FEED, 
 			int USR_PROV, int USR_DISG, int USR_SYBL, int BAND_MAX, 
 			int BAND_PER, int WARMUP, boolean SMART_GEN){
+		this(NUM_USERS, NUM_FILES, NUM_TRANS, ZIPF, PRE_TRUSTED, USR_GOOD, 
+				USR_PURE, USR_FEED, USR_PROV, USR_DISG, USR_SYBL, BAND_MAX, 
+				BAND_PER, WARMUP, SMART_GEN, System.currentTimeMillis());
+	}
+	
+	/**
+	 * Construct a Globals object by providing all field values, along with
+	 * the seed of its Random object (so that runs can be reproduced).
+	 * @param NUM_USERS Number of users in Network
+	 * @param NUM_FILES Number of files in Network
+	 * @param NUM_TRANS Number of transactions to simulate
+	 * @param ZIPF Zipf constant controlling file popularity
+	 * @param PRE_TRUSTED Number of pre-trusted users, a subset of 'good' users
+	 * @param USR_GOOD Number of 'good' users
+	 * @param USR_PURE Number of 'purely malicious' users
+	 * @param USR_FEED Number of 'feedback malicious' users
+	 * @param USR_PROV Number of 'malicious provider' users
+	 * @param USR_DISG Number of 'disguised malicious' users
+	 * @param USR_SYBL Number of 'Sybil attack' users
+	 * @param BAND_MAX Maximum number of connections per user
+	 * @param BAND_PER Number of time units (cycles) a transaction requires
+	 * @param WARMUP Number of warm-up instructions to simulate
+	 * @param SMART_GEN Use intelligent transaction generation?
+	 * @param RAND_SEED Seed for the 'this.RAND' Random object
+	 */
+	public Globals(int NUM_USERS, int NUM_FILES, int NUM_TRANS, double ZIPF, 
+			int PRE_TRUSTED, int USR_GOOD, int USR_PURE, int USR_FEED, 
+			int USR_PROV, int USR_DISG, int USR_SYBL, int BAND_MAX, 
+			int BAND_PER, int WARMUP, boolean SMART_GEN, long RAND_SEED){
 		
 		this.NUM_USERS = NUM_USERS;
 		this.NUM_TRANS = NUM_TRANS;
@@ -141,7 +170,7 @@ public class Globals{
 		this.WARMUP = WARMUP;
 		this.SMART_GEN = SMART_GEN;
 		
-		this.RAND_SEED = System.currentTimeMillis();
+		this.RAND_SEED = RAND_SEED;
 		this.RAND = new Random(RAND_SEED);
 	}
 	
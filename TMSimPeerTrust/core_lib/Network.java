@@ -29,29 +29,98 @@ public class Network{
 	private User[] users;
 	
 	/**
-	 * Array acting as a file library for the Network.
+	 * Columnar storage of all Relations between library Users.
 	 */
-	private LinkedList<FileCopy>[] files;
+	private RelationStore relations;
 	
 	/**
-	 * Queue storing transactions in progress, yet to commit data.
+	 * Behavior models and collectives of library Users; built lazily.
 	 */
-	private Queue<Transaction> delay_queue;
+	private BehaviorIndex behaviors = null;
+	
+	/**
+	 * Number of independent malicious collectives (default 1).
+	 */
+	private int num_collectives = 1;
+	
+	/**
+	 * Per-receiver trust orders over all Users; NULL unless enabled.
+	 */
+	private TrustOrder trust_order = null;
+	
+	/**
+	 * Indexed file library for the Network; every FileCopy, by file.
+	 */
+	private FileLibrary files;
+	
+	/**
+	 * Calendar queue of transactions in progress, yet to commit data. Each
+	 * of its BAND_PER+1 buckets holds transactions by commit cycle, modulo.
+	 */
+	private Transaction[][] calendar;
+	
+	/**
+	 * Number of transactions held in each calendar bucket.
+	 */
+	private int[] bucket_size;
+	
+	/**
+	 * Number of transactions held across all calendar buckets.
+	 */
+	private int queued;
+	
+	/**
+	 * Batch of transactions most recently taken from the calendar.
+	 */
+	private Transaction[] due;
+	
+	/**
+	 * Number of transactions in the 'due' batch.
+	 */
+	private int due_count;
+	
+	/**
+	 * Committed transactions available for reuse.
+	 */
+	private Transaction[] pool;
+	
+	/**
+	 * Number of transactions in the pool.
+	 */
+	private int pool_size;
 	
 	// *************************** CONSTRUCTORS ******************************
 	
 	/**
-	 * Construct a Network object.
+	 * Construct a Network object, storing Relations densely.
 	 * @param GLOBALS The Network parameterization object
 	 */
-	@SuppressWarnings("unchecked")
 	public Network(Globals GLOBALS){
+		this(GLOBALS, false);
+	}
+	
+	/**
+	 * Construct a Network object, choosing how Relations are stored.
+	 * @param GLOBALS The Network parameterization object
+	 * @param sparse_relations TRUE to store only Relations with feedback
+	 */
+	public Network(Globals GLOBALS, boolean sparse_relations){
 		this.GLOBALS = GLOBALS;
 		users = new User[GLOBALS.NUM_USERS];		
-		files = (LinkedList<FileCopy>[])new LinkedList[GLOBALS.NUM_FILES];
-		for(int i=0; i < GLOBALS.NUM_FILES; i++)
-			files[i] = new LinkedList<FileCopy>();
-		this.delay_queue = new LinkedList<Transaction>();
+		if(sparse_relations)
+			relations = new SparseRelationStore(GLOBALS.NUM_USERS);
+		else
+			relations = new DenseRelationStore(GLOBALS.NUM_USERS);
+		files = new FileLibrary(GLOBALS.NUM_FILES);
+		calendar = new Transaction[GLOBALS.BAND_PER + 1][];
+		for(int i=0; i < calendar.length; i++)
+			calendar[i] = new Transaction[4];
+		bucket_size = new int[calendar.length];
+		queued = 0;
+		due = new Transaction[4];
+		due_count = 0;
+		pool = new Transaction[16];
+		pool_size = 0;
 	}
 	
 	// ************************** PUBLIC METHODS *****************************
@@ -74,8 +143,30 @@ public class Network{
 	 */
 	public void setUser(int user_num, User user){
 		this.users[user_num] = user;
+		user.bindRelations(this.relations, user_num);
+		this.behaviors = null;
 	}	
 	
+	/**
+	 * Access method to the behavior index over the User library. It is 
+	 * built on first use, so must only be requested once all Users are set.
+	 * @return Index of User behavior models and malicious collectives
+	 */
+	public BehaviorIndex getBehaviorIndex(){
+		if(this.behaviors == null)
+			this.behaviors = new BehaviorIndex(this, num_collectives);
+		return (this.behaviors);
+	}
+	
+	/**
+	 * Set the number of independent collectives malicious Users form.
+	 * @param num_collectives Number of collectives (values below 1 mean 1)
+	 */
+	public void setCollectives(int num_collectives){
+		this.num_collectives = Math.max(1, num_collectives);
+		this.behaviors = null;
+	}
+	
 	/**
 	 * Access method to a Relation object between two library Users.
 	 * @param source Numerical identifier of a User
@@ -83,18 +174,56 @@ public class Network{
 	 * @return Relation between 'source' and 'dest'; from former's perspective
 	 */
 	public Relation getUserRelation(int source, int dest){
-		return (this.users[source].getRelation(dest));
+		return (this.relations.getRelation(source, dest));
+	}
+	
+	/**
+	 * Access method to the store holding all Relations in this Network.
+	 * @return Columnar store of all Relations between library Users
+	 */
+	public RelationStore getRelations(){
+		return (this.relations);
+	}
+	
+	/**
+	 * Enable the per-receiver trust order index over library Users.
+	 */
+	public void enableTrustOrder(){
+		if(this.trust_order == null)
+			this.trust_order = new TrustOrder(relations, GLOBALS.NUM_USERS);
+	}
+	
+	/**
+	 * Access method to the per-receiver trust order index.
+	 * @return Index of Users by trust, or NULL if it has not been enabled
+	 */
+	public TrustOrder getTrustOrder(){
+		return (this.trust_order);
 	}
 	
 		// ----------------------- FILE METHODS ------------------------------
 	
 	/**
-	 * Fetch an iterator over all copies of a particular file.
+	 * Fetch an iterator over all copies of a particular file. FileCopies are
+	 * built on the fly; prefer fileOwner()/fileOwnerValid() in hot loops.
 	 * @param file_num Numerical file identifier
 	 * @return Iterator over all FileCopies of file 'file'
 	 */
-	public Iterator<FileCopy> getFileIterator(int file_num){
-		return (this.files[file_num].iterator());
+	public Iterator<FileCopy> getFileIterator(final int file_num){
+		return (new Iterator<FileCopy>(){
+			private int k = 0;
+			public boolean hasNext(){
+				return (k < files.copies(file_num));
+			}
+			public FileCopy next(){
+				if(!hasNext())
+					throw new NoSuchElementException();
+				FileCopy copy = new FileCopy(files.owner(file_num, k), 
+						files.valid(file_num, k));
+				k++;
+				return copy;
+			}
+		});
 	}	
 
 	/**
@@ -103,7 +232,39 @@ public class Network{
 	 * @return Number of FileCopies that exist for file 'file'
 	 */
 	public int fileOwners(int file_num){
-		return (this.files[file_num].size());
+		return (this.files.copies(file_num));
+	}
+	
+	/**
+	 * Access the owner of a particular copy of a file. Copies are ordered
+	 * as they were added; a user re-acquiring a file may appear twice.
+	 * @param file_num Numerical file identifier
+	 * @param k Position of the copy, on [0..fileOwners(file_num))
+	 * @return Numerical identifier of the k-th owner of 'file_num'
+	 */
+	public int fileOwner(int file_num, int k){
+		return (this.files.owner(file_num, k));
+	}
+	
+	/**
+	 * Access the validity of a particular copy of a file.
+	 * @param file_num Numerical file identifier
+	 * @param k Position of the copy, on [0..fileOwners(file_num))
+	 * @return Validity of the k-th copy of 'file_num'
+	 */
+	public boolean fileOwnerValid(int file_num, int k){
+		return (this.files.valid(file_num, k));
+	}
+	
+	/**
+	 * Query whether a copy of a file repeats an owner listed earlier. Such
+	 * copies should be skipped when visiting each owner exactly once.
+	 * @param file_num Numerical file identifier
+	 * @param k Position of the copy, on [0..fileOwners(file_num))
+	 * @return TRUE if the k-th owner of 'file_num' appears at some j < k
+	 */
+	public boolean fileOwnerRepeat(int file_num, int k){
+		return (this.files.repeat(file_num, k));
 	}
 	
 	/**
@@ -113,11 +274,10 @@ public class Network{
 	 * @return TRUE if 'file_num' owned by 'user_num' is valid. Else, FALSE.
 	 */
 	public boolean fileCopyValid(int file_num, int user_num){
-		for(int i=0; i < files[file_num].size(); i++){
-			if(files[file_num].get(i).getOwner() == user_num)
-				return files[file_num].get(i).getValid();
-		} // Search FileCopy list until match is found
-		return false; // Uncalled		
+		int k = files.find(file_num, user_num);
+		if(k < 0)
+			return false; // Uncalled
+		return (files.valid(file_num, k)); // A user's first copy decides
 	}
 	
 	/**
@@ -127,11 +287,7 @@ public class Network{
 	 * @return TRUE if 'user_num" owns a copy of 'file_num'. Else, FALSE.
 	 */
 	public boolean hasFile(int user_num, int file_num){
-		for(int i=0; i < files[file_num].size(); i++){
-			if(files[file_num].get(i).getOwner() == user_num)
-				return true;
-		} // Search the file's owner list exhaustively
-		return false;
+		return (files.find(file_num, user_num) >= 0);
 	}
 	
 	/**
@@ -139,12 +295,7 @@ public class Network{
 	 * @return Number of files with at least one owner
 	 */
 	public int availableFiles(){
-		int available = 0;
-		for(int i=0; i < GLOBALS.NUM_FILES; i++){
-			if(files[i].size() > 0)
-				available++;
-		} // Count all files with at least one owner
-		return available;
+		return (files.available());
 	}
 	
 	/**
@@ -154,34 +305,87 @@ public class Network{
 	 * @param valid Validity of the file being added
 	 */
 	public void addFile(int user_num, int file_num, boolean valid){
-		this.files[file_num].add(new FileCopy(user_num, valid));
+		this.files.add(user_num, file_num, valid);
 		this.users[user_num].incFileCount();
 	}
 
 		// ---------------------- QUEUE METHODS ------------------------------
 	
 	/**
-	 * Enqueue a transaction onto tail of the delay queue.
+	 * Obtain a Transaction for the delay queue, reusing a committed one.
+	 * @param commit_cycle Cycle when this transaction can commit
+	 * @param sender File provider
+	 * @param receiver File receiver
+	 * @param file_num File being exchanged
+	 * @param valid Validity of file being exchanged
+	 * @return Transaction holding the given fields
+	 */
+	public Transaction newTrans(int commit_cycle, int sender, int receiver, 
+			int file_num, boolean valid){
+		if(pool_size == 0)
+			return (new Transaction(commit_cycle, sender, receiver, file_num, 
+					valid));
+		Transaction trans = pool[--pool_size];
+		pool[pool_size] = null;
+		trans.reset(commit_cycle, sender, receiver, file_num, valid);
+		return trans;
+	}
+	
+	/**
+	 * Enqueue a transaction into the calendar bucket of its commit cycle.
 	 * @param trans The transaction to be enqueued
 	 */
 	public void enqueueTrans(Transaction trans){
-		this.delay_queue.add(trans);
+		int bucket = trans.getCommit() % calendar.length;
+		int size = bucket_size[bucket];
+		if(size == calendar[bucket].length)
+			calendar[bucket] = Arrays.copyOf(calendar[bucket], size * 2);
+		calendar[bucket][size] = trans;
+		bucket_size[bucket] = size + 1;
+		queued++;
 	}
 	
 	/**
-	 * Dequeue transaction at the head of the delay queue.
-	 * @return Transaction at head of the delay queue
+	 * Remove every transaction due to commit at a cycle from the delay queue,
+	 * in the order they were enqueued. They are accessed via dueTrans() and
+	 * remain valid until the next call, when they return to the pool.
+	 * @param cycle The current cycle
+	 * @return Number of transactions due at 'cycle'
 	 */
-	public Transaction dequeueTrans(){
-		return (this.delay_queue.remove());
+	public int takeDue(int cycle){
+		for(int i=0; i < due_count; i++){
+			if(pool_size == pool.length)
+				pool = Arrays.copyOf(pool, pool_size * 2);
+			pool[pool_size++] = due[i];
+			due[i] = null;
+		} // Recycle the previous batch, which callers are done with
+		due_count = 0;
+		
+		int bucket = cycle % calendar.length;
+		Transaction[] entries = calendar[bucket];
+		int size = bucket_size[bucket], kept = 0;
+		for(int i=0; i < size; i++){
+			if(entries[i].getCommit() == cycle){
+				if(due_count == due.length)
+					due = Arrays.copyOf(due, due_count * 2);
+				due[due_count++] = entries[i];
+			} else
+				entries[kept++] = entries[i];
+		} // Buckets are shared by cycles BAND_PER+1 apart; keep later ones
+		for(int i=kept; i < size; i++)
+			entries[i] = null;
+		bucket_size[bucket] = kept;
+		queued -= due_count;
+		return due_count;
 	}
 	
 	/**
-	 * Return, but not remove transaction on head of delay queue.
-	 * @return Transaction at head of the delay queue
+	 * Access a transaction from the batch most recently taken by takeDue().
+	 * @param k Position in the batch, on [0..takeDue(cycle))
+	 * @return The k-th transaction due, in enqueue order
 	 */
-	public Transaction peekQueue(){
-		return (this.delay_queue.peek());
+	public Transaction dueTrans(int k){
+		return (this.due[k]);
 	}
 	
 	/**
@@ -189,7 +393,7 @@ public class Network{
 	 * @return Number of transactions currently in the delay queue.
 	 */
 	public int queueSize(){
-		return (this.delay_queue.size());
+		return (this.queued);
 	}
 	
 }
@@ -3,8 +3,9 @@ package core_lib;
 
 /**
  * The Relation class describes the prior interaction between two users. It
- * stores both feedbacks and the critical trust value that is calculated
- * by a trust management system (via TrustAlg interface).
+ * exposes both feedbacks and the critical trust value that is calculated
+ * by a trust management system (via TrustAlg interface). A Relation is a
+ * lightweight view; the fields themselves reside in a RelationStore.
  */
 public class Relation{
 	
@@ -19,49 +20,40 @@ public class Relation{
 	// ************************** PRIVATE FIELDS *****************************
 
 	/**
-	 * Describes feedback history currently activated on this Relation
+	 * The store holding this Relation's fields.
 	 */
-	private Copy history;
+	private final RelationStore store;
 	
 	/**
-	 * The number of globally broadcast positive/satisfactory feedbacks.
+	 * Numerical identifier of the User holding this Relation.
 	 */
-	private int global_pos;
+	private final int source;
 	
 	/**
-	 * The number of globally broadcast negative/unsatisfactory feedbacks.
+	 * Numerical identifier of the User this Relation describes.
 	 */
-	private int global_neg;
+	private final int dest;
 	
-	/**
-	 * The number of truly positive/satisfactory interactions.
-	 */
-	private int honest_pos;
-	
-	/**
-	 * The number of truly negative/unsatisfactory interactions.
-	 */
-	private int honest_neg;
+	// *************************** CONSTRUCTORS ******************************
 	
 	/**
-	 * The trust value characterizing this user relationship.
+	 * Construct an empty Relation object, backed by a private store. 
+	 * Relations should be modified only according to the methods below.
 	 */
-	private double trust_val;
-	
-	// *************************** CONSTRUCTORS ******************************
+	public Relation(){
+		this(new DenseRelationStore(1), 0, 0);
+	}
 	
 	/**
-	 * Construct an empty Relation object. Relations should be modified
-	 * only according to the methods below, so no others are provided. 
+	 * Construct a Relation viewing a single slot of a RelationStore.
+	 * @param store The store holding this Relation's fields
+	 * @param source Numerical identifier of the User holding this Relation
+	 * @param dest Numerical identifier of the User it describes
 	 */
-	public Relation(){
-		this.history = Relation.Copy.GLOBAL;
-		this.global_pos = 0;
-		this.global_neg = 0;
-		this.honest_pos = 0;
-		this.honest_neg = 0;
-		this.trust_val = 0.0;
-		return;
+	Relation(RelationStore store, int source, int dest){
+		this.store = store;
+		this.source = source;
+		this.dest = dest;
 	}
 	
 	// ************************** PUBLIC METHODS *****************************
@@ -71,7 +63,7 @@ public class Relation{
 	 * @return Trust value characterizing this user Relation
 	 */
 	public double getTrust(){
-		return (this.trust_val);
+		return (store.getTrust(source, dest));
 	}
 	
 	/**
@@ -79,7 +71,7 @@ public class Relation{
 	 * @param new_trust The new value for the trust_value field
 	 */
 	public void setTrust(double new_trust){
-		this.trust_val = new_trust;
+		store.setTrust(source, dest, new_trust);
 	}
 	
 	/**
@@ -87,7 +79,7 @@ public class Relation{
 	 * @param historyStyle History to be maintained, per Copy enumeration
 	 */
 	public void setHistory(Relation.Copy historyStyle){
-		this.history = historyStyle;
+		store.setHistory(source, dest, historyStyle);
 	}
 	
 	/**
@@ -95,10 +87,7 @@ public class Relation{
 	 * @return Global-positive feedbacks in this Relation
 	 */
 	public int getPos(){
-		if(this.history == Relation.Copy.GLOBAL)
-			return (this.global_pos);
-		else // if(this.history == Relation.Copy.HONEST)
-			return (this.honest_pos);
+		return (store.getPos(source, dest));
 	}
 	
 	/**
@@ -106,10 +95,7 @@ public class Relation{
 	 * @return Global-negative feedbacks in this Relation
 	 */
 	public int getNeg(){
-		if(this.history == Relation.Copy.GLOBAL)
-			return (this.global_neg);
-		else // if(this.history == Relation.Copy.HONEST)
-			return (this.honest_neg);
+		return (store.getNeg(source, dest));
 	}
 	
 		// *********************** GLOBAL TRUST ******************************
@@ -118,14 +104,14 @@ public class Relation{
 	 * Increment the global-positive feedback count by one
 	 */
 	public void incGlobalPos(){
-		this.global_pos++;
+		store.incGlobalPos(source, dest);
 	}
 	
 	/**
 	 * Increment the global-negative feedback count by one
 	 */
 	public void incGlobalNeg(){
-		this.global_neg++;
+		store.incGlobalNeg(source, dest);
 	}
 	
 		// *********************** HONEST TRUST ******************************
@@ -134,14 +120,14 @@ public class Relation{
 	 * Increment the actual positive interaction count by one
 	 */
 	public void incHonestPos(){
-		this.honest_pos++;
+		store.incHonestPos(source, dest);
 	}
 	
 	/**
 	 * Increment the actual negative interaction count by one
 	 */
 	public void incHonestNeg(){
-		this.honest_neg++;
+		store.incHonestNeg(source, dest);
 	}
 	
 }
@@ -0,0 +1,303 @@
+package core_lib;
+
+import java.util.Arrays;
+
+/**
+ * The RelationStore class is the storage backend behind every Relation in a
+ * Network. Relation is a lightweight view onto a single (source, dest) slot
+ * of a store; the store itself decides how fields are laid out. Stores also
+ * track, per source, which destinations have ever received feedback, so
+ * that callers may visit those instead of scanning all N users.
+ */
+public abstract class RelationStore{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Number of users whose relations are stored (N).
+	 */
+	protected final int num_users;
+
+	/**
+	 * Per source, the destinations whose feedback counts have ever been 
+	 * incremented, kept in ascending order.
+	 */
+	private int[][] touched;
+
+	/**
+	 * Number of valid entries in each row of 'touched'.
+	 */
+	private int[] touched_count;
+
+	/**
+	 * Per source, a counter bumped whenever one of its trust values changes.
+	 */
+	private int[] trust_version;
+
+	/**
+	 * Per source, the history every one of its relations currently reports
+	 * (0=GLOBAL, 1=HONEST), or -1 to defer to per-relation settings.
+	 */
+	private byte[] source_view;
+
+	/**
+	 * Index told of every trust change, or NULL if none is kept.
+	 */
+	private TrustOrder trust_order;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a RelationStore in which all relations are empty.
+	 * @param num_users Number of users in the Network (N)
+	 */
+	protected RelationStore(int num_users){
+		this.num_users = num_users;
+		touched = new int[num_users][];
+		touched_count = new int[num_users];
+		trust_version = new int[num_users];
+		source_view = new byte[num_users];
+		Arrays.fill(source_view, (byte)-1);
+		trust_order = null;
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Access method to a Relation view onto this store.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @return Relation between 'source' and 'dest'; from former's perspective
+	 */
+	public Relation getRelation(int source, int dest){
+		return (new Relation(this, source, dest));
+	}
+
+	/**
+	 * The number of destinations 'source' has ever recorded feedback on.
+	 * @param source Numerical identifier of a User
+	 * @return Number of touched relations held by 'source'
+	 */
+	public int touchedCount(int source){
+		return (this.touched_count[source]);
+	}
+
+	/**
+	 * Access a destination 'source' has recorded feedback on. Destinations
+	 * are returned in ascending order of 'k'.
+	 * @param source Numerical identifier of a User
+	 * @param k Position of the destination, on [0..touchedCount(source))
+	 * @return Numerical identifier of the k-th touched destination
+	 */
+	public int touchedDest(int source, int k){
+		return (this.touched[source][k]);
+	}
+
+	/**
+	 * Version of the trust values held by a source. It changes whenever
+	 * setTrust() alters any of them, so derived data may be cached against it.
+	 * @param source Numerical identifier of a User
+	 * @return Current trust version of 'source'
+	 */
+	public int trustVersion(int source){
+		return (this.trust_version[source]);
+	}
+
+	/**
+	 * Access method to the trust value of a relation.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @return Trust value 'source' holds in 'dest'
+	 */
+	public abstract double getTrust(int source, int dest);
+
+	/**
+	 * Set the trust value of a relation. Implementations must invoke
+	 * trustChanged() if (and only if) the stored value differs.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @param new_trust Trust value 'source' is to hold in 'dest'
+	 */
+	public abstract void setTrust(int source, int dest, double new_trust);
+
+	/**
+	 * Set every trust value held by a source at once, as though by setTrust()
+	 * on each destination. A store may keep 'row' by reference rather than
+	 * copying it, so callers must not modify it afterwards; the same array
+	 * may be handed to several sources.
+	 * @param source Numerical identifier of a User
+	 * @param row Trust value 'source' is to hold in each user, of length N
+	 */
+	public void setTrustRow(int source, double[] row){
+		for(int i=0; i < num_users; i++)
+			setTrust(source, i, row[i]);
+	}
+
+	/**
+	 * Set every trust value held by a source at once, as though by setTrust()
+	 * on each destination. Unlike setTrustRow(), the store copies 'row', so
+	 * callers may reuse it as scratch space.
+	 * @param source Numerical identifier of a User
+	 * @param row Trust value 'source' is to hold in each user, of length N
+	 */
+	public void copyTrustRow(int source, double[] row){
+		for(int i=0; i < num_users; i++)
+			setTrust(source, i, row[i]);
+	}
+
+	/**
+	 * Set the history activated for a relation.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @param historyStyle History to be maintained, per Copy enumeration
+	 */
+	public void setHistory(int source, int dest, Relation.Copy historyStyle){
+		byte view = source_view[source];
+		if(view >= 0){
+			source_view[source] = -1;
+			fillHistory(source, view);
+		} // Hand a source-wide view down to its relations before editing one
+		storeHistory(source, dest, (byte)((historyStyle == 
+				Relation.Copy.GLOBAL) ? 0 : 1));
+	}
+
+	/**
+	 * Set the history activated for every relation held by a source, as a
+	 * constant-time view. No per-relation state is modified.
+	 * @param source Numerical identifier of a User
+	 * @param historyStyle History to be reported, per Copy enumeration
+	 */
+	public void setSourceHistory(int source, Relation.Copy historyStyle){
+		source_view[source] = (byte)((historyStyle == 
+				Relation.Copy.GLOBAL) ? 0 : 1);
+	}
+
+	/**
+	 * Number of positive feedbacks in a relation, per its active history.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @return Positive feedbacks 'source' holds regarding 'dest'
+	 */
+	public abstract int getPos(int source, int dest);
+
+	/**
+	 * Number of negative feedbacks in a relation, per its active history.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @return Negative feedbacks 'source' holds regarding 'dest'
+	 */
+	public abstract int getNeg(int source, int dest);
+
+	/**
+	 * Increment the global-positive feedback count of a relation by one.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 */
+	public abstract void incGlobalPos(int source, int dest);
+
+	/**
+	 * Increment the global-negative feedback count of a relation by one.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 */
+	public abstract void incGlobalNeg(int source, int dest);
+
+	/**
+	 * Increment the honest-positive interaction count of a relation by one.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 */
+	public abstract void incHonestPos(int source, int dest);
+
+	/**
+	 * Increment the honest-negative interaction count of a relation by one.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 */
+	public abstract void incHonestNeg(int source, int dest);
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Determine which history a relation reports.
+	 * @param source Numerical identifier of a User
+	 * @param stored History recorded for the relation itself (0 or 1)
+	 * @return History in effect (0=GLOBAL, 1=HONEST)
+	 */
+	protected byte historyOf(int source, byte stored){
+		byte view = source_view[source];
+		return ((view >= 0) ? view : stored);
+	}
+
+	/**
+	 * Record the history of a single relation.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @param style History to be maintained (0=GLOBAL, 1=HONEST)
+	 */
+	protected abstract void storeHistory(int source, int dest, byte style);
+
+	/**
+	 * Record the same history for every relation held by a source.
+	 * @param source Numerical identifier of a User
+	 * @param style History to be maintained (0=GLOBAL, 1=HONEST)
+	 */
+	protected abstract void fillHistory(int source, byte style);
+
+	/**
+	 * Record that one of a source's trust values has changed.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of the User whose trust changed
+	 * @param old_trust Trust 'source' held in 'dest' before the change
+	 */
+	protected void trustChanged(int source, int dest, double old_trust){
+		trust_version[source]++;
+		if(trust_order != null)
+			trust_order.changed(source, dest, old_trust);
+	}
+
+	/**
+	 * Record that any number of a source's trust values have changed.
+	 * @param source Numerical identifier of a User
+	 */
+	protected void trustChanged(int source){
+		trust_version[source]++;
+		if(trust_order != null)
+			trust_order.rowChanged(source);
+	}
+
+	/**
+	 * Have an index told of every subsequent trust change.
+	 * @param order Index of users by trust
+	 */
+	void watchTrust(TrustOrder order){
+		this.trust_order = order;
+	}
+
+	/**
+	 * Record that a relation has received its first feedback. Must be called
+	 * exactly once per relation, by the implementing store.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 */
+	protected void touch(int source, int dest){
+		int count = touched_count[source];
+		int[] row = touched[source];
+		if(row == null)
+			row = touched[source] = new int[4];
+		else if(count == row.length){
+			int[] grown = new int[count * 2];
+			System.arraycopy(row, 0, grown, 0, count);
+			row = touched[source] = grown;
+		} // Grow row storage geometrically when full
+
+		int pos = count;
+		while((pos > 0) && (row[pos-1] > dest)){
+			row[pos] = row[pos-1];
+			pos--;
+		} // Insertion keeps the row sorted, matching a scan over all N
+		row[pos] = dest;
+		touched_count[source] = count + 1;
+	}
+
+}
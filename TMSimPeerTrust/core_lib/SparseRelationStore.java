@@ -0,0 +1,413 @@
+package core_lib;
+
+import java.util.Arrays;
+
+/**
+ * The SparseRelationStore class holds feedback only for those Relations
+ * which have some: each (source, dest) pair is packed into a long key and
+ * mapped to a slot by a primitive open-addressing table; slot fields live in
+ * parallel growable arrays. With the table, a slot costs some 50 to 100
+ * bytes, depending on load, so feedback memory scales with the number of
+ * transactions. Pairs without a slot read as empty.
+ * Trust is kept apart from feedback wherever whole rows are written. Rows
+ * copied in by copyTrustRow() land in a plain double[N] owned by the store,
+ * 8 bytes per pair for each source whose trust is computed. Rows handed
+ * over by setTrustRow() are kept by reference, so sources sharing one
+ * global trust vector cost a reference each. Only trust set one value at a
+ * time, on a source holding no row, is kept in the slots.
+ */
+public class SparseRelationStore extends RelationStore{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Marker for an unoccupied hash table position (no valid key is < 0).
+	 */
+	private static final long EMPTY = -1L;
+
+	/**
+	 * Packed (source, dest) keys; open-addressing with linear probing.
+	 */
+	private long[] keys;
+
+	/**
+	 * Slot assigned to the key at the same hash table position.
+	 */
+	private int[] slots;
+
+	/**
+	 * Number of slots in use.
+	 */
+	private int size;
+
+	/**
+	 * Feedback history activated on each slot (0=GLOBAL, 1=HONEST).
+	 */
+	private byte[] history;
+
+	/**
+	 * The number of globally broadcast positive feedbacks, per slot.
+	 */
+	private int[] global_pos;
+
+	/**
+	 * The number of globally broadcast negative feedbacks, per slot.
+	 */
+	private int[] global_neg;
+
+	/**
+	 * The number of truly positive interactions, per slot.
+	 */
+	private int[] honest_pos;
+
+	/**
+	 * The number of truly negative interactions, per slot.
+	 */
+	private int[] honest_neg;
+
+	/**
+	 * Trust value held in each slot's relation.
+	 */
+	private double[] trust;
+
+	/**
+	 * Next slot held by the same source, or -1; chains begin at 'first'.
+	 */
+	private int[] next;
+
+	/**
+	 * Per source, the most recently assigned of its slots, or -1.
+	 */
+	private int[] first;
+
+	/**
+	 * History last activated for all of a source's relations. It is given
+	 * to every slot the source is later assigned.
+	 */
+	private byte[] default_history;
+
+	/**
+	 * Trust rows handed over whole, per source; NULL while a source's trust
+	 * lives in its slots. Rows may be shared, so they are never modified.
+	 */
+	private double[][] trust_rows;
+
+	/**
+	 * Per source, whether its row in 'trust_rows' belongs to this store and
+	 * may be written in place, rather than being shared.
+	 */
+	private boolean[] row_owned;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a SparseRelationStore in which all relations are empty.
+	 * @param num_users Number of users in the Network (N)
+	 */
+	public SparseRelationStore(int num_users){
+		super(num_users);
+		keys = new long[1024];
+		Arrays.fill(keys, EMPTY);
+		slots = new int[1024];
+		size = 0;
+		history = new byte[256];
+		global_pos = new int[256];
+		global_neg = new int[256];
+		honest_pos = new int[256];
+		honest_neg = new int[256];
+		trust = new double[256];
+		next = new int[256];
+		first = new int[num_users];
+		Arrays.fill(first, -1);
+		default_history = new byte[num_users];
+		trust_rows = new double[num_users][];
+		row_owned = new boolean[num_users];
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Interfaced: Access method to the trust value of a relation.
+	 */
+	public double getTrust(int source, int dest){
+		double[] row = trust_rows[source];
+		if(row != null)
+			return (row[dest]);
+		int slot = find(source, dest);
+		if(slot < 0)
+			return (0.0);
+		return (trust[slot]);
+	}
+
+	/**
+	 * Interfaced: Set the trust value of a relation.
+	 */
+	public void setTrust(int source, int dest, double new_trust){
+		double[] row = trust_rows[source];
+		if(row != null){
+			double old_trust = row[dest];
+			if(old_trust != new_trust){
+				if(!row_owned[source]){
+					row = trust_rows[source] = row.clone();
+					row_owned[source] = true;
+				} // Shared rows are copied once, before their first write
+				row[dest] = new_trust;
+				trustChanged(source, dest, old_trust);
+			} // Only genuine changes invalidate the source's trust version
+			return;
+		} // A source handed a whole row keeps it from then on
+
+		int slot = find(source, dest);
+		if(slot < 0){
+			if(new_trust == 0.0)
+				return;
+			slot = findOrInsert(source, dest);
+		} // Zero trust needs no slot of its own
+		double old_trust = trust[slot];
+		if(old_trust != new_trust){
+			trust[slot] = new_trust;
+			trustChanged(source, dest, old_trust);
+		} // Only genuine changes invalidate the source's trust version
+	}
+
+	/**
+	 * Interfaced: Set every trust value of a source at once. The row is
+	 * kept by reference, so several sources may share a single array.
+	 */
+	public void setTrustRow(int source, double[] row){
+		double[] old_row = trust_rows[source];
+		if(old_row == row)
+			return;
+		for(int i=0; i < num_users; i++){
+			if(((old_row == null) ? getTrust(source, i) : old_row[i]) != 
+					row[i]){
+				trustChanged(source);
+				break;
+			} // Only genuine changes invalidate the source's trust version
+		} // Compare against the trust values being replaced
+		trust_rows[source] = row;
+		row_owned[source] = false;
+	}
+
+	/**
+	 * Interfaced: Copy every trust value of a source at once, into a row
+	 * owned by this store (allocated on the first copy for that source).
+	 */
+	public void copyTrustRow(int source, double[] row){
+		double[] old_row = trust_rows[source];
+		double[] own_row = row_owned[source] ? old_row : 
+				new double[num_users];
+		double old_trust;
+		for(int i=0; i < num_users; i++){
+			old_trust = (old_row == null) ? getTrust(source, i) : old_row[i];
+			own_row[i] = row[i];
+			if(old_trust != row[i])
+				trustChanged(source, i, old_trust);
+		} // Only genuine changes invalidate the source's trust version
+		trust_rows[source] = own_row;
+		row_owned[source] = true;
+	}
+
+	/**
+	 * Interfaced: Positive feedbacks in a relation, per its active history.
+	 */
+	public int getPos(int source, int dest){
+		int slot = find(source, dest);
+		if(slot < 0)
+			return (0);
+		else if(historyOf(source, history[slot]) == 0)
+			return (global_pos[slot]);
+		else // if(history[slot] == 1)
+			return (honest_pos[slot]);
+	}
+
+	/**
+	 * Interfaced: Negative feedbacks in a relation, per its active history.
+	 */
+	public int getNeg(int source, int dest){
+		int slot = find(source, dest);
+		if(slot < 0)
+			return (0);
+		else if(historyOf(source, history[slot]) == 0)
+			return (global_neg[slot]);
+		else // if(history[slot] == 1)
+			return (honest_neg[slot]);
+	}
+
+	/**
+	 * Interfaced: Increment the global-positive feedback count by one.
+	 */
+	public void incGlobalPos(int source, int dest){
+		int slot = touchSlot(source, dest);
+		global_pos[slot]++;
+	}
+
+	/**
+	 * Interfaced: Increment the global-negative feedback count by one.
+	 */
+	public void incGlobalNeg(int source, int dest){
+		int slot = touchSlot(source, dest);
+		global_neg[slot]++;
+	}
+
+	/**
+	 * Interfaced: Increment the honest-positive interaction count by one.
+	 */
+	public void incHonestPos(int source, int dest){
+		int slot = touchSlot(source, dest);
+		honest_pos[slot]++;
+	}
+
+	/**
+	 * Interfaced: Increment the honest-negative interaction count by one.
+	 */
+	public void incHonestNeg(int source, int dest){
+		int slot = touchSlot(source, dest);
+		honest_neg[slot]++;
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Interfaced: Record the history of a single relation.
+	 */
+	protected void storeHistory(int source, int dest, byte style){
+		int slot = find(source, dest);
+		if(slot < 0){
+			if(style == default_history[source])
+				return;
+			slot = findOrInsert(source, dest);
+		} // Pairs already reporting 'style' need no slot of their own
+		history[slot] = style;
+	}
+
+	/**
+	 * Interfaced: Record the same history for every relation of a source.
+	 */
+	protected void fillHistory(int source, byte style){
+		default_history[source] = style;
+		for(int slot = first[source]; slot >= 0; slot = next[slot])
+			history[slot] = style;
+	}
+
+	/**
+	 * Pack a (source, dest) pair into a single non-negative key.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @return Key identifying the pair
+	 */
+	private static long pack(int source, int dest){
+		return ((((long)source) << 32) | (dest & 0xFFFFFFFFL));
+	}
+
+	/**
+	 * Compute the home position of a key in a hash table.
+	 * @param key Packed (source, dest) key
+	 * @param mask Hash table length, minus one
+	 * @return Position at which probing for 'key' begins
+	 */
+	private static int home(long key, int mask){
+		long mixed = key * 0x9E3779B97F4A7C15L;
+		return ((int)(mixed >>> 32) & mask);
+	}
+
+	/**
+	 * Find the slot of a relation, if it has been assigned one.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @return Slot of the relation, or -1 if it is empty
+	 */
+	private int find(int source, int dest){
+		long key = pack(source, dest);
+		int mask = keys.length - 1;
+		int pos = home(key, mask);
+		while(keys[pos] != EMPTY){
+			if(keys[pos] == key)
+				return (slots[pos]);
+			pos = (pos + 1) & mask;
+		} // Linear probing until the key or a gap is found
+		return (-1);
+	}
+
+	/**
+	 * Find the slot of a relation, assigning one if it was empty. A new
+	 * slot reports the source's default history, no feedback and no trust.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @return Slot of the relation
+	 */
+	private int findOrInsert(int source, int dest){
+		long key = pack(source, dest);
+		int mask = keys.length - 1;
+		int pos = home(key, mask);
+		while(keys[pos] != EMPTY){
+			if(keys[pos] == key)
+				return (slots[pos]);
+			pos = (pos + 1) & mask;
+		} // Linear probing until the key or a gap is found
+
+		if(size == global_pos.length)
+			growSlots();
+		int slot = size++;
+		keys[pos] = key;
+		slots[pos] = slot;
+		history[slot] = default_history[source];
+		next[slot] = first[source];
+		first[source] = slot;
+		if((size * 2) > keys.length)
+			rehash();
+		return (slot);
+	}
+
+	/**
+	 * Find the slot of a relation about to receive feedback, recording it
+	 * as touched if this is its first.
+	 * @param source Numerical identifier of a User
+	 * @param dest Numerical identifier of a second User
+	 * @return Slot of the relation
+	 */
+	private int touchSlot(int source, int dest){
+		int slot = findOrInsert(source, dest);
+		if((global_pos[slot] | global_neg[slot] | honest_pos[slot] | 
+				honest_neg[slot]) == 0)
+			touch(source, dest);
+		return (slot);
+	}
+
+	/**
+	 * Double the capacity of the per-slot field arrays.
+	 */
+	private void growSlots(){
+		int capacity = global_pos.length * 2;
+		history = Arrays.copyOf(history, capacity);
+		global_pos = Arrays.copyOf(global_pos, capacity);
+		global_neg = Arrays.copyOf(global_neg, capacity);
+		honest_pos = Arrays.copyOf(honest_pos, capacity);
+		honest_neg = Arrays.copyOf(honest_neg, capacity);
+		trust = Arrays.copyOf(trust, capacity);
+		next = Arrays.copyOf(next, capacity);
+	}
+
+	/**
+	 * Double the hash table, keeping its load factor at or below one half.
+	 */
+	private void rehash(){
+		long[] old_keys = keys;
+		int[] old_slots = slots;
+		keys = new long[old_keys.length * 2];
+		Arrays.fill(keys, EMPTY);
+		slots = new int[old_keys.length * 2];
+
+		int mask = keys.length - 1, pos;
+		for(int i=0; i < old_keys.length; i++){
+			if(old_keys[i] == EMPTY)
+				continue;
+			pos = home(old_keys[i], mask);
+			while(keys[pos] != EMPTY)
+				pos = (pos + 1) & mask;
+			keys[pos] = old_keys[i];
+			slots[pos] = old_slots[i];
+		} // Re-insert every occupied position
+	}
+
+}
@@ -36,7 +36,8 @@ public class Statistics {
 	public int NUM_FBACK_LIES = 0;
 	
 	/**
-	 * Sybil feedbacks committed.
+	 * Sybil feedbacks committed. Like the good-receiver counts below, these
+	 * are classified by Network.getBehaviorIndex().
 	 */
 	public int NUM_FBACK_SYBL = 0;
 	
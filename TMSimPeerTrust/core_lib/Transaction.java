@@ -95,4 +95,23 @@ public class Transaction{
 		return (this.valid);
 	}
 	
+	// ************************** PRIVATE METHODS ****************************
+	
+	/**
+	 * Overwrite all fields, so that a pooled Transaction may be reused.
+	 * @param commit_cycle Cycle when this transaction can commit
+	 * @param sender File provider
+	 * @param receiver File receiver
+	 * @param file_num File being exchanged
+	 * @param valid Validity of file being exchanged
+	 */
+	void reset(int commit_cycle, int sender, int receiver, int file_num, 
+			boolean valid){
+		this.commit_cycle = commit_cycle;
+		this.sender = sender;
+		this.receiver = receiver;
+		this.file_num = file_num;
+		this.valid = valid;
+	}
+	
 }
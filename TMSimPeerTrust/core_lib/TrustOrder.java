@@ -0,0 +1,341 @@
+package core_lib;
+
+import java.util.Arrays;
+
+/**
+ * The TrustOrder class keeps, per receiver, every user sorted by descending
+ * trust from that receiver's perspective (ties by ascending identifier).
+ * Orders are built on first use. The RelationStore then reports each trust
+ * change, with the value it replaced, and a stale order is brought up to
+ * date by removing and re-inserting only the destinations that changed.
+ * Once a receiver's changes outgrow a small log, or a whole row is replaced
+ * (see RelationStore.setTrustRow()), its order is dropped; it is re-sorted
+ * only when the receiver's trust then holds still between two requests.
+ * Each order costs N integers, so the index is optional.
+ */
+public class TrustOrder{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Store from which trust values (and their versions) are read.
+	 */
+	private final RelationStore relations;
+
+	/**
+	 * Number of users being ordered (N).
+	 */
+	private final int num_users;
+
+	/**
+	 * Changes a receiver may log before its order is dropped instead.
+	 */
+	private final int log_limit;
+
+	/**
+	 * Per receiver, all users by descending trust; NULL until first used.
+	 */
+	private int[][] orders;
+
+	/**
+	 * Trust version of each receiver at the time its order was last current.
+	 */
+	private int[] built_version;
+
+	/**
+	 * Per receiver, whether its order must be re-sorted from scratch.
+	 */
+	private boolean[] stale;
+
+	/**
+	 * Trust version of each receiver at the time of its last request.
+	 */
+	private int[] asked_version;
+
+	/**
+	 * Per receiver, destinations whose trust changed since its order was
+	 * last current, in order of change; NULL while empty.
+	 */
+	private int[][] log_dest;
+
+	/**
+	 * Trust each logged destination held before its change.
+	 */
+	private double[][] log_old;
+
+	/**
+	 * Number of valid entries in each row of 'log_dest' and 'log_old'.
+	 */
+	private int[] log_count;
+
+	/**
+	 * Trust values of the receiver whose order is being built.
+	 */
+	private double[] keys;
+
+	/**
+	 * Scratch space for merging runs while sorting.
+	 */
+	private int[] merge;
+
+	/**
+	 * Per user, the refresh in which it was found to have changed.
+	 */
+	private int[] mark;
+
+	/**
+	 * Current refresh number; users whose 'mark' equals it read 'old_key'.
+	 */
+	private int stamp;
+
+	/**
+	 * Trust a changed user held when the order being refreshed was current.
+	 */
+	private double[] old_key;
+
+	/**
+	 * Distinct users changed since the order being refreshed was current.
+	 */
+	private int[] dirty;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a TrustOrder over a store, with no orders yet built.
+	 * @param relations Store holding the trust values to be ordered
+	 * @param num_users Number of users in the Network (N)
+	 */
+	public TrustOrder(RelationStore relations, int num_users){
+		this.relations = relations;
+		this.num_users = num_users;
+		this.log_limit = Math.max(4, num_users / 32);
+		orders = new int[num_users][];
+		built_version = new int[num_users];
+		stale = new boolean[num_users];
+		asked_version = new int[num_users];
+		log_dest = new int[num_users][];
+		log_old = new double[num_users][];
+		log_count = new int[num_users];
+		keys = new double[num_users];
+		merge = new int[num_users];
+		mark = new int[num_users];
+		stamp = 0;
+		old_key = new double[num_users];
+		dirty = new int[num_users];
+		relations.watchTrust(this);
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Decide whether walking a receiver's order beats visiting a file's
+	 * owners. With owners spread evenly, a walk inspects about N/owners
+	 * users before a hit, so the order only pays off once owners^2 exceeds
+	 * N, and only if it need not be re-sorted: a dropped order is re-sorted
+	 * just when the receiver's trust is unchanged since its last request.
+	 * @param recv Numerical identifier of the receiving User
+	 * @param owners Number of owners of the file being sourced
+	 * @return TRUE if the trust order should be walked; else FALSE
+	 */
+	public boolean preferred(int recv, int owners){
+		if(((long)owners * owners) <= num_users)
+			return false;
+		int version = relations.trustVersion(recv);
+		boolean quiet = (asked_version[recv] == version);
+		asked_version[recv] = version;
+		return ((orders[recv] == null) || !stale[recv] || quiet);
+	}
+
+	/**
+	 * Access the trust order of a receiver, bringing it up to date first.
+	 * @param recv Numerical identifier of the receiving User
+	 * @return All users, by descending trust 'recv' holds in them
+	 */
+	public int[] order(int recv){
+		int version = relations.trustVersion(recv);
+		if((orders[recv] == null) || stale[recv]){
+			build(recv);
+			stale[recv] = false;
+			clearLog(recv);
+		} else if(built_version[recv] != version)
+			refresh(recv);
+		built_version[recv] = version;
+		return (orders[recv]);
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Record that a single trust value of a receiver has changed.
+	 * @param recv Numerical identifier of the receiving User
+	 * @param dest Numerical identifier of the User whose trust changed
+	 * @param old_trust Trust 'recv' held in 'dest' before the change
+	 */
+	void changed(int recv, int dest, double old_trust){
+		if((orders[recv] == null) || stale[recv])
+			return;
+		int count = log_count[recv];
+		if(count == log_limit){
+			rowChanged(recv);
+			return;
+		} // Past the limit, re-sorting is cheaper than repositioning
+
+		if(log_dest[recv] == null){
+			log_dest[recv] = new int[4];
+			log_old[recv] = new double[4];
+		} else if(count == log_dest[recv].length){
+			log_dest[recv] = Arrays.copyOf(log_dest[recv], count * 2);
+			log_old[recv] = Arrays.copyOf(log_old[recv], count * 2);
+		} // Grow log storage geometrically when full
+		log_dest[recv][count] = dest;
+		log_old[recv][count] = old_trust;
+		log_count[recv] = count + 1;
+	}
+
+	/**
+	 * Record that any number of a receiver's trust values have changed.
+	 * @param recv Numerical identifier of the receiving User
+	 */
+	void rowChanged(int recv){
+		if(orders[recv] == null)
+			return;
+		stale[recv] = true;
+		clearLog(recv);
+	}
+
+	/**
+	 * Discard the change log of a receiver.
+	 * @param recv Numerical identifier of the receiving User
+	 */
+	private void clearLog(int recv){
+		log_dest[recv] = null;
+		log_old[recv] = null;
+		log_count[recv] = 0;
+	}
+
+	/**
+	 * Bring a receiver's order up to date by repositioning only the users
+	 * named in its change log. Each is first removed, found by the trust
+	 * it held when the order was current; then all are re-inserted by
+	 * their present trust. Costs O(log N) lookups per changed user, plus
+	 * the array shifts of removal and insertion.
+	 * @param recv Numerical identifier of the receiving User
+	 */
+	private void refresh(int recv){
+		int[] order = orders[recv];
+		int count = 0, length = num_users, pos, user;
+		nextStamp();
+		for(int e=0; e < log_count[recv]; e++){
+			user = log_dest[recv][e];
+			if(mark[user] == stamp)
+				continue;
+			mark[user] = stamp;
+			old_key[user] = log_old[recv][e];
+			dirty[count++] = user;
+		} // The first logged value of a user is the one it is ordered by
+		clearLog(recv);
+
+		for(int k=0; k < count; k++){
+			user = dirty[k];
+			pos = position(recv, order, length, old_key[user], user);
+			System.arraycopy(order, pos + 1, order, pos, length - pos - 1);
+			length--;
+		} // Remove every changed user; the rest remain sorted
+		nextStamp();
+		for(int k=0; k < count; k++){
+			user = dirty[k];
+			pos = position(recv, order, length,
+					relations.getTrust(recv, user), user);
+			System.arraycopy(order, pos, order, pos + 1, length - pos);
+			order[pos] = user;
+			length++;
+		} // Re-insert each by its present trust
+	}
+
+	/**
+	 * Binary search an order for the first position not preceding a user.
+	 * @param recv Numerical identifier of the receiving User
+	 * @param order Users sorted by descending trust, then identifier
+	 * @param length Number of valid entries in 'order'
+	 * @param trust Trust by which 'user' is to be ordered
+	 * @param user Numerical identifier of the User being placed
+	 * @return Position at which 'user' is (or belongs) in 'order'
+	 */
+	private int position(int recv, int[] order, int length, double trust,
+			int user){
+		int lo = 0, hi = length, mid;
+		double key;
+		while(lo < hi){
+			mid = (lo + hi) >>> 1;
+			key = keyOf(recv, order[mid]);
+			if((key > trust) || ((key == trust) && (order[mid] < user)))
+				lo = mid + 1;
+			else
+				hi = mid;
+		} // Larger trust first, ties by ascending identifier
+		return (lo);
+	}
+
+	/**
+	 * Trust by which a user is currently placed in the order being refreshed.
+	 * @param recv Numerical identifier of the receiving User
+	 * @param user Numerical identifier of a second User
+	 * @return Old trust if 'user' awaits repositioning; else present trust
+	 */
+	private double keyOf(int recv, int user){
+		if(mark[user] == stamp)
+			return (old_key[user]);
+		return (relations.getTrust(recv, user));
+	}
+
+	/**
+	 * Begin a new refresh stamp, invalidating every existing mark.
+	 */
+	private void nextStamp(){
+		if(stamp == Integer.MAX_VALUE){
+			Arrays.fill(mark, 0);
+			stamp = 0;
+		} // Wrap around only after clearing old marks
+		stamp++;
+	}
+
+	/**
+	 * Sort all users by the trust a receiver holds in them.
+	 * @param recv Numerical identifier of the receiving User
+	 */
+	private void build(int recv){
+		int[] order = orders[recv];
+		if(order == null)
+			order = orders[recv] = new int[num_users];
+		for(int i=0; i < num_users; i++){
+			order[i] = i;
+			keys[i] = relations.getTrust(recv, i);
+		} // Snapshot the receiver's trust row
+
+		int[] src = order, dest = merge, swap;
+		for(int width=1; width < num_users; width *= 2){
+			for(int lo=0; lo < num_users; lo += (2 * width)){
+				int mid = Math.min(lo + width, num_users);
+				int hi = Math.min(lo + (2 * width), num_users);
+				int a = lo, b = mid, out = lo;
+				while((a < mid) && (b < hi)){
+					if(keys[src[b]] > keys[src[a]])
+						dest[out++] = src[b++];
+					else
+						dest[out++] = src[a++];
+				} // Stable merge, larger trust first
+				while(a < mid)
+					dest[out++] = src[a++];
+				while(b < hi)
+					dest[out++] = src[b++];
+			} // Merge adjacent runs of length 'width'
+			swap = src;
+			src = dest;
+			dest = swap;
+		} // Bottom-up merge sort over user identifiers
+
+		if(src != order)
+			System.arraycopy(src, 0, order, 0, num_users);
+	}
+
+}
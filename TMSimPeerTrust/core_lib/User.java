@@ -1,6 +1,8 @@
 
 package core_lib;
 
+import java.util.Random;
+
 /**
  * The User class encapsulates a single user/peer/node in a Network. In
  * addition to describing behavioral properties, this class also manages
@@ -45,9 +47,14 @@ public class User{
 	private int num_files;
 	
 	/**
-	 * Array storing Relations (reputations) of other User's in Network
+	 * Store holding Relations (reputations) of other User's in Network
 	 */
-	private Relation[] vector;
+	private RelationStore relations;
+	
+	/**
+	 * Numerical identifier of this User within the store's Network.
+	 */
+	private int user_num;
 	
 	/**
 	 * Manager for upload bandwidth.
@@ -69,37 +76,46 @@ public class User{
 	 * @param GLOBALS The Network parameterization object
 	 */
 	public User(Behavior model, boolean pre_trusted, Globals GLOBALS){
+		this(model, pre_trusted, GLOBALS, GLOBALS.RAND);
+	}
+	
+	/**
+	 * Create a User, initializing some fields based on the Behavior argument
+	 * with numbers drawn from a given Random object.
+	 * @param model Behavior to use for field generation
+	 * @param pre_trusted Whether or not this user is pre-trusted 
+	 * @param GLOBALS The Network parameterization object
+	 * @param rand Random object from which fields are drawn
+	 */
+	public User(Behavior model, boolean pre_trusted, Globals GLOBALS, 
+			Random rand){
 		this.model = model;
 		this.pre_trusted = pre_trusted;
 		this.num_files = 0;
 		
 		if(model == Behavior.USR_GOOD){
-			this.pct_cleanup = 1.0 - (GLOBALS.RAND.nextDouble()/10);
+			this.pct_cleanup = 1.0 - (rand.nextDouble()/10);
 			this.pct_honest = 1.0;
 		} else if(model == Behavior.USR_PURE){
-			this.pct_cleanup = GLOBALS.RAND.nextDouble()/10;
+			this.pct_cleanup = rand.nextDouble()/10;
 			this.pct_honest = 0.0;
 		} else if(model == Behavior.USR_FEED){
-			this.pct_cleanup = 1.0 - (GLOBALS.RAND.nextDouble()/10);
+			this.pct_cleanup = 1.0 - (rand.nextDouble()/10);
 			this.pct_honest = 0.0;
 		} else if(model == Behavior.USR_PROV){
-			this.pct_cleanup = GLOBALS.RAND.nextDouble()/10;
+			this.pct_cleanup = rand.nextDouble()/10;
 			this.pct_honest = 1;
 		} else if(model == Behavior.USR_DISG){
-			this.pct_cleanup = 0.5 + (GLOBALS.RAND.nextDouble()/2);
-			this.pct_honest = 0.5 + (GLOBALS.RAND.nextDouble()/2);
+			this.pct_cleanup = 0.5 + (rand.nextDouble()/2);
+			this.pct_honest = 0.5 + (rand.nextDouble()/2);
 		} else if(model == Behavior.USR_SYBL){
-			this.pct_cleanup = GLOBALS.RAND.nextDouble()/10;
+			this.pct_cleanup = rand.nextDouble()/10;
 			this.pct_honest = 0.0; // irrelevant
 		} else{
 			this.pct_cleanup = 0.0;
 			this.pct_honest = 0.0;
 		}
 		
-		this.vector = new Relation[GLOBALS.NUM_USERS];
-		for(int i=0; i < GLOBALS.NUM_USERS; i++)
-			vector[i] = new Relation();
-		
 		ul_bwidth = new BWidthUnit(GLOBALS);
 		dl_bwidth = new BWidthUnit(GLOBALS);
 	}
@@ -120,10 +136,6 @@ public class User{
 		this.pct_cleanup = cleanup;
 		this.pct_honest = honest;
 		
-		this.vector = new Relation[GLOBALS.NUM_USERS];
-		for(int i=0; i < GLOBALS.NUM_USERS; i++)
-			vector[i] = new Relation();
-		
 		ul_bwidth = new BWidthUnit(GLOBALS);
 		dl_bwidth = new BWidthUnit(GLOBALS);	
 	}
@@ -172,7 +184,17 @@ public class User{
 	 * @return Relation describing this User's relationship with 'user_num'
 	 */
 	public Relation getRelation(int user_num){
-		return (this.vector[user_num]);
+		return (this.relations.getRelation(this.user_num, user_num));
+	}
+	
+	/**
+	 * Bind this User to the Relation storage of the Network containing it.
+	 * @param relations Store holding the Relations of the Network
+	 * @param user_num Numerical identifier of this User in the Network
+	 */
+	void bindRelations(RelationStore relations, int user_num){
+		this.relations = relations;
+		this.user_num = user_num;
 	}
 	
 	/**
@@ -2,12 +2,13 @@
 package generator_lib;
 
 import java.io.*;
-import java.util.Iterator;
 import core_lib.*;
 
 /**
  * The GeneratorOutput class assists the TraceGenerator driver program in 
- * writing data to the trace file
+ * writing data to the trace file, either as text or in the compact binary
+ * format described by core_lib.BinaryTrace. Records are formatted straight
+ * into the buffer of a TraceWriter, rather than through printf().
  */
 public class GeneratorOutput{
 	
@@ -19,9 +20,14 @@ public class GeneratorOutput{
 	private final Globals GLOBALS;
 	
 	/**
-	 * Output stream to the trace file
+	 * Buffered writer to the trace file
 	 */
-	private PrintWriter out;
+	private TraceWriter out;
+	
+	/**
+	 * Whether the binary, rather than textual, format is being written
+	 */
+	private final boolean binary;
 	
 	// *************************** CONSTRUCTORS ******************************
 	
@@ -31,15 +37,32 @@ public class GeneratorOutput{
 	 * @param GLOBALS The Network parameterization object
 	 */
 	public GeneratorOutput(String output, Globals GLOBALS){
+		this(output, GLOBALS, false, false);
+	}
+	
+	/**
+	 * Construct a GeneratorOutput object
+	 * @param output Filename/path of the trace file to be written
+	 * @param GLOBALS The Network parameterization object
+	 * @param binary Whether to write the binary, rather than textual, format
+	 * @param async Whether to perform disk I/O on a background thread
+	 */
+	public GeneratorOutput(String output, Globals GLOBALS, boolean binary,
+			boolean async){
 		try{
-			FileOutputStream fos = new FileOutputStream(output);
-			out = new PrintWriter(fos);
+			out = new TraceWriter(output, async);
 		} catch(FileNotFoundException e){
 			System.out.println("\nError: Problems opening output trace file." +
 					" Aborting.\n\n");
 			System.exit(1);
-		} // Open the PrintWriter on output file.
+		} // Open the TraceWriter on output file.
+		if(binary){
+			for(int i=0; i < BinaryTrace.MAGIC.length; i++)
+				out.putByte(BinaryTrace.MAGIC[i]);
+			out.putByte(BinaryTrace.VERSION);
+		} // Binary traces identify themselves up front
 		this.GLOBALS = GLOBALS;
+		this.binary = binary;
 	}
 	
 	// ************************** PUBLIC METHODS *****************************
@@ -48,22 +71,51 @@ public class GeneratorOutput{
 	 * Write the header (mostly GLOBAL variables) data to the trace file.
 	 */
 	public void writeHeader(){
-		out.printf("%d Users\n", GLOBALS.NUM_USERS);
-		out.printf("%d Files\n", GLOBALS.NUM_FILES);
-		out.printf("%d Transactions\n", GLOBALS.NUM_TRANS);
-		out.printf("%d Maximum Connections\n", GLOBALS.BAND_MAX);
-		out.printf("%d Cycle Length per Upload-Download\n", GLOBALS.BAND_PER);
-		out.printf("%d Warm-up Transactions\n", GLOBALS.WARMUP);
-		out.printf("%f Zipf constant\n", GLOBALS.ZIPF);
-		out.printf("%d Pre-Trusted Users\n", GLOBALS.PRE_TRUSTED);
-		out.printf("%d Well-Behaved (Good) Users\n", GLOBALS.USR_GOOD);
-		out.printf("%d Purely Malicious Users\n", GLOBALS.USR_PURE);
-		out.printf("%d Feedback Skewing Users\n", GLOBALS.USR_FEED);
-		out.printf("%d Malignant Providing Users\n", GLOBALS.USR_PROV);
-		out.printf("%d Disguised Malicous Users\n", GLOBALS.USR_DISG);
-		out.printf("%d Sybil Attack Users\n", GLOBALS.USR_SYBL);
-		out.printf("%b Intelligent Trans. Generation\n", GLOBALS.SMART_GEN);
-		out.printf("%d Trace Generation Seed\n\n", GLOBALS.RAND_SEED);
+		writeHeader(GLOBALS.RAND_SEED);
+	}
+	
+	/**
+	 * Write the header data to the trace file, recording a given seed.
+	 * @param seed Seed with which the trace was generated
+	 */
+	public void writeHeader(long seed){
+		if(binary){
+			out.putVarint(GLOBALS.NUM_USERS);
+			out.putVarint(GLOBALS.NUM_FILES);
+			out.putVarint(GLOBALS.NUM_TRANS);
+			out.putVarint(GLOBALS.BAND_MAX);
+			out.putVarint(GLOBALS.BAND_PER);
+			out.putVarint(GLOBALS.WARMUP);
+			out.putFixed64(Double.doubleToLongBits(GLOBALS.ZIPF));
+			out.putVarint(GLOBALS.PRE_TRUSTED);
+			out.putVarint(GLOBALS.USR_GOOD);
+			out.putVarint(GLOBALS.USR_PURE);
+			out.putVarint(GLOBALS.USR_FEED);
+			out.putVarint(GLOBALS.USR_PROV);
+			out.putVarint(GLOBALS.USR_DISG);
+			out.putVarint(GLOBALS.USR_SYBL);
+			out.putByte(GLOBALS.SMART_GEN ? 1 : 0);
+			out.putFixed64(seed);
+			System.out.print("\nHeader complete...\n");
+			return;
+		} // Binary header holds the same fields, in the same order
+		headerLine(GLOBALS.NUM_USERS, " Users\n");
+		headerLine(GLOBALS.NUM_FILES, " Files\n");
+		headerLine(GLOBALS.NUM_TRANS, " Transactions\n");
+		headerLine(GLOBALS.BAND_MAX, " Maximum Connections\n");
+		headerLine(GLOBALS.BAND_PER, " Cycle Length per Upload-Download\n");
+		headerLine(GLOBALS.WARMUP, " Warm-up Transactions\n");
+		out.putAscii(String.format("%f Zipf constant\n", GLOBALS.ZIPF));
+		headerLine(GLOBALS.PRE_TRUSTED, " Pre-Trusted Users\n");
+		headerLine(GLOBALS.USR_GOOD, " Well-Behaved (Good) Users\n");
+		headerLine(GLOBALS.USR_PURE, " Purely Malicious Users\n");
+		headerLine(GLOBALS.USR_FEED, " Feedback Skewing Users\n");
+		headerLine(GLOBALS.USR_PROV, " Malignant Providing Users\n");
+		headerLine(GLOBALS.USR_DISG, " Disguised Malicous Users\n");
+		headerLine(GLOBALS.USR_SYBL, " Sybil Attack Users\n");
+		out.putBoolean(GLOBALS.SMART_GEN);
+		out.putAscii(" Intelligent Trans. Generation\n");
+		headerLine(seed, " Trace Generation Seed\n\n");
 		System.out.print("\nHeader complete...\n");
 	}
 	
@@ -72,13 +124,25 @@ public class GeneratorOutput{
 	 * @param nw The Network whose User data to write
 	 */
 	public void writeUsers(Network nw){
+		User user;
 		for(int i=0; i < GLOBALS.NUM_USERS; i++){
-			out.printf("(%f,", nw.getUser(i).getCleanup());
-			out.printf("%f,", nw.getUser(i).getHonesty());
-			out.printf("%d,", User.BehaviorToInt(nw.getUser(i).getModel()));
-			out.printf("%b)\n", nw.getUser(i).isPreTrusted());
+			user = nw.getUser(i);
+			if(binary){
+				out.putFixed64(Double.doubleToLongBits(user.getCleanup()));
+				out.putFixed64(Double.doubleToLongBits(user.getHonesty()));
+				out.putByte(User.BehaviorToInt(user.getModel()));
+				out.putByte(user.isPreTrusted() ? 1 : 0);
+				continue;
+			} // Binary users keep full double precision
+			out.putAscii(String.format("(%f,%f,", user.getCleanup(), 
+					user.getHonesty()));
+			out.putInt(User.BehaviorToInt(user.getModel()));
+			out.putByte(',');
+			out.putBoolean(user.isPreTrusted());
+			out.putAscii(")\n");
 		} // Print all User initialization data to trace
-		out.printf("\n"); // Line separator
+		if(!binary)
+			out.putByte('\n'); // Line separator
 		System.out.print("User initialization complete...\n");
 	}
 	
@@ -87,16 +151,31 @@ public class GeneratorOutput{
 	 * @param nw The Network whose file data to write
 	 */
 	public void writeLibraries(Network nw){
-		Iterator<FileCopy> iter;
-		FileCopy copy;
+		if(binary){
+			long copies = 0;
+			for(int i=0; i < GLOBALS.NUM_FILES; i++)
+				copies += nw.fileOwners(i);
+			out.putVarint(copies);
+		} // Binary libraries are prefixed by their copy count
 		for(int i=0; i < GLOBALS.NUM_FILES; i++){
-			iter = nw.getFileIterator(i);
-			while(iter.hasNext()){
-				copy = iter.next();
-				out.printf("(%d,%d,%b)\n", copy.getOwner(), i, copy.getValid());
+			for(int k=0; k < nw.fileOwners(i); k++){
+				if(binary){
+					out.putVarint(((long)nw.fileOwner(i, k) << 1) | 
+							(nw.fileOwnerValid(i, k) ? 1 : 0));
+					out.putVarint(i);
+					continue;
+				} // Encode each copy as (owner, valid) and file varints
+				out.putByte('(');
+				out.putInt(nw.fileOwner(i, k));
+				out.putByte(',');
+				out.putInt(i);
+				out.putByte(',');
+				out.putBoolean(nw.fileOwnerValid(i, k));
+				out.putAscii(")\n");
 			} // Print trace entry for each file copy
 		} // Output entries for all files in the Network
-		out.print("\n"); // Blank separator
+		if(!binary)
+			out.putByte('\n'); // Blank separator
 		System.out.print("Library initialization complete...\n");
 	}
 	
@@ -105,15 +184,35 @@ public class GeneratorOutput{
 	 * @param trans The Transaction whose data to write
 	 */
 	public void writeTrans(Transaction trans){
-		out.printf("(%d,%d)\n", trans.getRecv(), trans.getFile());
+		if(binary){
+			out.putVarint(trans.getRecv());
+			out.putVarint(trans.getFile());
+			return;
+		} // Binary transactions are just two varints
+		out.putByte('(');
+		out.putInt(trans.getRecv());
+		out.putByte(',');
+		out.putInt(trans.getFile());
+		out.putAscii(")\n");
 	}
 	
 	/**
 	 * Shutdown (flush and close) the output stream
 	 */
 	public void shutdown(){
-		out.flush();
 		out.close();
 	}
 	
+	// ************************** PRIVATE METHODS ****************************
+	
+	/**
+	 * Write a textual header line consisting of an integer and its label
+	 * @param value Integer beginning the line
+	 * @param label Remainder of the line, including its terminator
+	 */
+	private void headerLine(long value, String label){
+		out.putInt(value);
+		out.putAscii(label);
+	}
+	
 }
@@ -1,6 +1,8 @@
 
 package generator_lib;
 
+import java.util.Random;
+
 import core_lib.*;
 
 /**
@@ -22,9 +24,38 @@ public class GeneratorUtils{
 	private final Globals GLOBALS;
 	
 	/**
-	 * Sum of all file Zipf frequencies.
+	 * Zipf frequencies (and their running sums) of all files.
+	 */
+	private final ZipfTable ZIPF_TABLE;
+	
+	/**
+	 * Number of plain rejection draws made for a file, before a receiver is
+	 * switched to sampling from the complement of its library.
 	 */
-	private double ZIPF_SUM;
+	private static final int REJECT_LIMIT = 32;
+	
+	/**
+	 * Users whose libraries lack some available file (i.e., possible smart
+	 * receivers), in positions [0..open_count). NULL until first needed.
+	 */
+	private int[] open_users;
+	
+	/**
+	 * Position of each user in 'open_users', or -1 once its library is full.
+	 */
+	private int[] open_pos;
+	
+	/**
+	 * Number of users in 'open_users'.
+	 */
+	private int open_count;
+	
+	/**
+	 * Per user, a sampler over the files it lacks; created only for users 
+	 * for whom rejection sampling has once failed, and holding only the
+	 * files that user then lacked.
+	 */
+	private LibraryComplement[] complements;
 	
 	// *************************** CONSTRUCTORS ******************************
 	
@@ -36,7 +67,7 @@ public class GeneratorUtils{
 	public GeneratorUtils(Network network, Globals GLOBALS){
 		this.nw = network;
 		this.GLOBALS = GLOBALS;
-		this.ZIPF_SUM = 0.0;
+		this.ZIPF_TABLE = new ZipfTable(GLOBALS.NUM_FILES, GLOBALS.ZIPF);
 	}
 	
 	// ************************** PUBLIC METHODS *****************************
@@ -62,16 +93,35 @@ public class GeneratorUtils{
 		double usr_cleanup;
 		for(int i=0; i < GLOBALS.NUM_USERS; i++){
 			for(int j=0; j < GLOBALS.NUM_FILES; j++){
-				if(GLOBALS.RAND.nextDouble() <= getZipf(j)){
+				if(GLOBALS.RAND.nextDouble() <= ZIPF_TABLE.frequency(j)){
 					usr_cleanup = nw.getUser(i).getCleanup();					
 					valid = (GLOBALS.RAND.nextDouble() <= usr_cleanup);
 					nw.addFile(i, j, valid);
 				} // Add file to library based on parameter thresholds				
 			} // Each user can (probabilistically) own any file
 		} // Initialize libraries for all users
-		for(int i=0; i < GLOBALS.NUM_FILES; i++){ 
-			this.ZIPF_SUM += getZipf(i);
-		} // Calculate total ZIPF weight for all files
+	}
+	
+	/**
+	 * Generate/populate the initial file library, visiting only the copies
+	 * created. Each user still owns each file independently with its Zipf 
+	 * frequency, as in generateInitLibs(), but the owners of a file are 
+	 * found by drawing the (geometrically distributed) gaps between them. 
+	 * Random numbers are consumed differently, so traces differ from those
+	 * of generateInitLibs() for the same seed.
+	 */
+	public void generateInitLibsSparse(){
+		double freq;
+		int user;
+		for(int j=0; j < GLOBALS.NUM_FILES; j++){
+			freq = ZIPF_TABLE.frequency(j);
+			user = nextOwner(-1, freq, GLOBALS.RAND, GLOBALS.NUM_USERS);
+			while(user < GLOBALS.NUM_USERS){
+				nw.addFile(user, j, (GLOBALS.RAND.nextDouble() <= 
+						nw.getUser(user).getCleanup()));
+				user = nextOwner(user, freq, GLOBALS.RAND, GLOBALS.NUM_USERS);
+			} // Skip straight from one owner of file 'j' to the next
+		} // Initialize libraries for all files
 	}
 	
 	/**
@@ -79,18 +129,41 @@ public class GeneratorUtils{
 	 * @return A Transaction object containing the data generated
 	 */
 	public Transaction genTransactionSmart(){
-		int recv, file_num;
-		do{ // A receiver shouldn't already have a "full" library
-			recv = GLOBALS.RAND.nextInt(GLOBALS.NUM_USERS);
-		} while(nw.getUser(recv).getNumFiles() == nw.availableFiles());
+		if(open_users == null)
+			openUsers();
+		if(open_count == 0){
+			System.out.print("\nError: Every user already owns every " +
+					"available file. Aborting.\n\n");
+			System.exit(1);
+		} // No receiver could possibly be chosen
+		
+			// A receiver shouldn't already have a "full" library
+		int recv = open_users[GLOBALS.RAND.nextInt(open_count)];
+		
+		int file_num = -1;
+		if(complements[recv] == null){
+			boolean cond1, cond2;
+			for(int tries=0; tries < REJECT_LIMIT; tries++){
+				file_num = ZIPF_TABLE.inverse(GLOBALS.RAND.nextDouble() * 
+						ZIPF_TABLE.sum());
+				cond1 = nw.hasFile(recv, file_num);
+				cond2 = nw.fileOwners(file_num) == 0;
+				if(!cond1 && !cond2)
+					break;
+				file_num = -1;
+			} // Receiver must not already have file, and it must be available
+			if(file_num == -1)
+				complements[recv] = new LibraryComplement(nw, ZIPF_TABLE, recv);
+		} // Most draws succeed quickly, until a library nears saturation
+		if(complements[recv] != null){
+			if(file_num == -1)
+				file_num = complements[recv].sample(GLOBALS.RAND);
+			complements[recv].remove(file_num);
+		} // Thereafter, draw only from files the receiver lacks
 		
-		boolean cond1, cond2;
-		do{ // Receiver must not already have file, and it must be available
-			file_num = inverseZipf(GLOBALS.RAND.nextDouble() * this.ZIPF_SUM);
-			cond1 = nw.hasFile(recv, file_num);
-			cond2 = nw.fileOwners(file_num) == 0;
-		} while(cond1 || cond2);
 		nw.addFile(recv, file_num, true);
+		if(nw.getUser(recv).getNumFiles() == nw.availableFiles())
+			closeUser(recv);
 		return (new Transaction(-1, -1, recv, file_num, false));
 	}
 	
@@ -104,6 +177,27 @@ public class GeneratorUtils{
 		return (new Transaction(-1, -1, recv, file_num, false));
 	}
 	
+	/**
+	 * Find the next owner of a file, when each user owns it independently
+	 * with a given probability, by drawing the geometric gap to that owner.
+	 * @param user Previous owner found, or -1 to find the first
+	 * @param freq Probability that any one user owns the file
+	 * @param rand Random object from which the gap is drawn
+	 * @param num_users Number of users in the Network
+	 * @return Next owner after 'user', or 'num_users' if there is none
+	 */
+	static int nextOwner(int user, double freq, Random rand, int num_users){
+		if(freq <= 0.0)
+			return num_users;
+		double gap = 0.0;
+		if(freq < 1.0)
+			gap = Math.floor(Math.log1p(-rand.nextDouble()) / 
+					Math.log1p(-freq));
+		if(user + 1 + gap >= num_users)
+			return num_users;
+		return (user + 1 + (int)gap);
+	}
+	
 	// ************************** PRIVATE METHODS ****************************
 	
 	/**
@@ -123,34 +217,38 @@ public class GeneratorUtils{
 		return quantity;
 	}
 	
-	// *************************** ZIPF PRIVATES *****************************
-	
 	/**
-	 * Return the Zipf frequency of a given file. 
-	 * @param rank File number whose frequency is desired
-	 * @return Fraction describing frequency rate on [0..1]
+	 * Gather the users whose libraries lack some available file. Smart
+	 * transactions never change which files are available, so afterwards 
+	 * users need only be removed as their libraries fill.
 	 */
-	private double getZipf(int rank){
-		return ((1.0) / (Math.pow((rank + 2.0), GLOBALS.ZIPF)));
-	}	
+	private void openUsers(){
+		open_users = new int[GLOBALS.NUM_USERS];
+		open_pos = new int[GLOBALS.NUM_USERS];
+		complements = new LibraryComplement[GLOBALS.NUM_USERS];
+		open_count = 0;
+		for(int i=0; i < GLOBALS.NUM_USERS; i++){
+			if(nw.getUser(i).getNumFiles() == nw.availableFiles()){
+				open_pos[i] = -1;
+				continue;
+			} // Users with full libraries are never receivers
+			open_pos[i] = open_count;
+			open_users[open_count++] = i;
+		} // Users are kept in identifier order until the first removal
+	}
 	
 	/**
-	 * Given an number on [0..ZIPF_SUM], map that value to a file identifier.
-	 * This is performed such that if a number is randomly selected on that
-	 * interval, the probability of a file identifier being returned corresponds
-	 * to its Zipf frequency as calculated by the getZipf() method. I am 
-	 * dissatisfied with the efficiency of this calculation.
-	 * @param weight Number on the [0..ZIPF_SUM] interval
-	 * @return Corresponding file identifier, per probability weighting
+	 * Remove a user whose library has become full from the open users, by
+	 * moving the last open user into its position.
+	 * @param user_num Numerical user identifier
 	 */
-	private int inverseZipf(double weight){
-		double total = 0.0;
-		for(int i=0; i < GLOBALS.NUM_FILES; i++){
-			total += getZipf(i);
-			if(total > weight)
-				return i;
-		} // Iteratively sum frequencies
-		return (GLOBALS.NUM_FILES - 1);
+	private void closeUser(int user_num){
+		int pos = open_pos[user_num];
+		int last = open_users[--open_count];
+		open_users[pos] = last;
+		open_pos[last] = pos;
+		open_pos[user_num] = -1;
+		complements[user_num] = null;
 	}
 	
 }
@@ -0,0 +1,169 @@
+package generator_lib;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import core_lib.Network;
+
+/**
+ * The LibraryComplement class samples, for a single user, the files that
+ * user could still receive: those available in the Network, but not yet in
+ * the user's library. Only those K files are kept, in ascending order, and
+ * drawn with probability proportional to their Zipf frequency from a Fenwick
+ * (binary indexed) tree of their weights; received files are zeroed. Memory
+ * is some 20 bytes per lacked file. Libraries are indexed by file, so the 
+ * lacked files are found by one O(F) pass over all files at construction; 
+ * sampling and removal then take O(log K) time. Removals only subtract
+ * from the tree, so whenever its total has halved since it was last built,
+ * the tree is rebuilt over the files still lacked (amortized O(1) per
+ * removal); rounding error thus stays small relative to the total.
+ */
+class LibraryComplement{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Draws landing on a received file before the tree is rebuilt.
+	 */
+	private static final int REDRAW_LIMIT = 8;
+
+	/**
+	 * Identifiers of the files the user lacked when the tree was last
+	 * built, ascending.
+	 */
+	private int[] files;
+
+	/**
+	 * Current weight of each entry of 'files': its Zipf frequency, or zero
+	 * once the user has received it.
+	 */
+	private double[] weight;
+
+	/**
+	 * Fenwick tree over 'weight' (1-indexed; entry 0 is unused).
+	 */
+	private double[] tree;
+
+	/**
+	 * Sum of all entries of 'weight'.
+	 */
+	private double total;
+
+	/**
+	 * Value of 'total' when the tree was last built.
+	 */
+	private double built_total;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a LibraryComplement for a user, as libraries stand now.
+	 * @param nw Network in which the user resides
+	 * @param zipf Zipf frequencies of all files
+	 * @param user_num Numerical identifier of the user
+	 */
+	LibraryComplement(Network nw, ZipfTable zipf, int user_num){
+		int num_files = nw.GLOBALS.NUM_FILES, count = 0;
+		files = new int[16];
+		for(int f=0; f < num_files; f++){
+			if((nw.fileOwners(f) == 0) || nw.hasFile(user_num, f))
+				continue;
+			if(count == files.length)
+				files = Arrays.copyOf(files, count * 2);
+			files[count++] = f;
+		} // Collect the available files the user lacks, in order
+		files = Arrays.copyOf(files, count);
+
+		weight = new double[count];
+		for(int k=0; k < count; k++)
+			weight[k] = zipf.frequency(files[k]);
+		build();
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Draw a file the user lacks, weighted by Zipf frequency. At least one
+	 * such file must exist.
+	 * @param rand Random number generator to draw from
+	 * @return Identifier of the file drawn
+	 */
+	int sample(Random rand){
+		int entry;
+		for(int tries=0; tries < REDRAW_LIMIT; tries++){
+			entry = search(rand.nextDouble() * total);
+			if((entry < weight.length) && (weight[entry] != 0.0))
+				return files[entry];
+		} // Redraw only if rounding strays onto a zero weight
+		build();
+		entry = search(rand.nextDouble() * total);
+		return files[Math.min(entry, weight.length - 1)];
+	}
+
+	/**
+	 * Record that the user now owns a file.
+	 * @param file_num Numerical file identifier
+	 */
+	void remove(int file_num){
+		int entry = Arrays.binarySearch(files, file_num);
+		if((entry < 0) || (weight[entry] == 0.0))
+			return;
+		double delta = weight[entry];
+		weight[entry] = 0.0;
+		total -= delta;
+		for(int i=entry + 1; i < tree.length; i += (i & -i))
+			tree[i] -= delta;
+		if(total < (built_total / 2))
+			build();
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Drop received files and (re)build the Fenwick tree over the weights of
+	 * those remaining, recomputing 'total' from scratch.
+	 */
+	private void build(){
+		int count = 0;
+		for(int k=0; k < weight.length; k++){
+			if(weight[k] == 0.0)
+				continue;
+			files[count] = files[k];
+			weight[count++] = weight[k];
+		} // Compact the files still lacked, keeping them in order
+		if(count < files.length){
+			files = Arrays.copyOf(files, count);
+			weight = Arrays.copyOf(weight, count);
+		} // Release the space of received files
+
+		tree = new double[count + 1];
+		total = 0.0;
+		for(int k=0; k < count; k++){
+			total += weight[k];
+			tree[k + 1] += weight[k];
+			int parent = (k + 1) + ((k + 1) & -(k + 1));
+			if(parent <= count)
+				tree[parent] += tree[k + 1];
+		} // Linear-time Fenwick construction, pushing sums to parents
+		built_total = total;
+	}
+
+	/**
+	 * Find the first entry at which the running sum of weights exceeds a
+	 * target, by descending the Fenwick tree.
+	 * @param target Number on the [0..total) interval
+	 * @return Position of that entry (or K, should rounding overshoot)
+	 */
+	private int search(double target){
+		int pos = 0;
+		for(int step=Integer.highestOneBit(weight.length); step > 0;
+				step >>= 1){
+			if((pos + step < tree.length) && (tree[pos + step] <= target)){
+				pos += step;
+				target -= tree[pos];
+			} // Descend right whenever the left subtree's sum is exhausted
+		} // 'pos' files have a running sum not exceeding 'target'
+		return pos;
+	}
+
+}
@@ -0,0 +1,337 @@
+package generator_lib;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import core_lib.*;
+
+/**
+ * The ShardedGenerator class generates users, initial libraries and naive
+ * transactions in parallel. Each kind of work is split into a fixed number
+ * of shards, each drawing from its own Random object; shard seeds are split
+ * in turn from the trace seed. Shards are merged back in order, so a trace
+ * depends only on the seed and the number of shards, and never on thread
+ * scheduling. Traces differ from those generated by GeneratorUtils.
+ */
+public class ShardedGenerator{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Transactions generated by each shard per round of naive generation.
+	 */
+	private static final int CHUNK = 1 << 14;
+
+	/**
+	 * The Network for which the generations are taking place.
+	 */
+	private Network nw;
+
+	/**
+	 * The Network parameterization object.
+	 */
+	private final Globals GLOBALS;
+
+	/**
+	 * Zipf frequencies of all files.
+	 */
+	private final ZipfTable ZIPF_TABLE;
+
+	/**
+	 * Number of shards into which each kind of work is split.
+	 */
+	private final int shards;
+
+	/**
+	 * Pool whose threads process the shards.
+	 */
+	private ForkJoinPool pool;
+
+	/**
+	 * Source of the seeds of every shard, split from the trace seed.
+	 */
+	private SplittableRandom seeds;
+
+	/**
+	 * Per shard, the Random object used for naive transactions.
+	 */
+	private Random[] trans_rand;
+
+	/**
+	 * Receivers and files of the current round of naive transactions.
+	 */
+	private int[] round_recv, round_file;
+
+	/**
+	 * Position of the next transaction to hand out from the current round.
+	 */
+	private int round_pos;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a ShardedGenerator object.
+	 * @param network The Network on which the utilities will operate
+	 * @param GLOBALS The Network parameterization object
+	 * @param shards Number of shards into which work is split
+	 */
+	public ShardedGenerator(Network network, Globals GLOBALS, int shards){
+		this.nw = network;
+		this.GLOBALS = GLOBALS;
+		this.ZIPF_TABLE = new ZipfTable(GLOBALS.NUM_FILES, GLOBALS.ZIPF);
+		this.shards = Math.max(1, shards);
+		this.pool = new ForkJoinPool(Math.min(this.shards,
+				Runtime.getRuntime().availableProcessors()));
+		this.seeds = new SplittableRandom(GLOBALS.RAND_SEED);
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Generate/populate the User library, one range of users per shard.
+	 */
+	public void generateUsers(){
+		final User[] users = new User[GLOBALS.NUM_USERS];
+		runShards(new ShardTask(){
+			void run(int shard, Random rand){
+				int hi = bound(GLOBALS.NUM_USERS, shard + 1);
+				for(int i=bound(GLOBALS.NUM_USERS, shard); i < hi; i++)
+					users[i] = newUser(i, rand);
+			}
+		});
+		for(int i=0; i < GLOBALS.NUM_USERS; i++)
+			nw.setUser(i, users[i]);
+	}
+
+	/**
+	 * Generate/populate the initial file library, one range of files per
+	 * shard. Each user owns each file independently with its Zipf frequency.
+	 * @param sparse Whether owners are found by sampling the gaps between
+	 * them (as in GeneratorUtils.generateInitLibsSparse()), rather than by
+	 * visiting every user
+	 */
+	public void generateInitLibs(final boolean sparse){
+		final CopyList[] copies = new CopyList[shards];
+		runShards(new ShardTask(){
+			void run(int shard, Random rand){
+				CopyList list = new CopyList();
+				int hi = bound(GLOBALS.NUM_FILES, shard + 1);
+				for(int j=bound(GLOBALS.NUM_FILES, shard); j < hi; j++){
+					double freq = ZIPF_TABLE.frequency(j);
+					if(sparse){
+						int user = GeneratorUtils.nextOwner(-1, freq, rand,
+								GLOBALS.NUM_USERS);
+						while(user < GLOBALS.NUM_USERS){
+							list.add(user, j, rand);
+							user = GeneratorUtils.nextOwner(user, freq, rand,
+									GLOBALS.NUM_USERS);
+						} // Skip straight from one owner to the next
+					} else{
+						for(int i=0; i < GLOBALS.NUM_USERS; i++){
+							if(rand.nextDouble() <= freq)
+								list.add(i, j, rand);
+						} // Each user can (probabilistically) own the file
+					} // Owners are found in ascending order either way
+				} // Shards never share a file, so never share a copy
+				copies[shard] = list;
+			}
+		});
+		for(int s=0; s < shards; s++){
+			for(int k=0; k < copies[s].size; k++)
+				nw.addFile(copies[s].owner[k], copies[s].file[k],
+						copies[s].valid[k]);
+		} // Merge copies in order of shard, hence of file
+	}
+
+	/**
+	 * 'Naively' generate a transaction. Transactions are generated in
+	 * rounds, each shard producing a fixed-size block of every round.
+	 * @return A Transaction object containing the data generated
+	 */
+	public Transaction genTransactionNaive(){
+		if((round_recv == null) || (round_pos == round_recv.length))
+			nextRound();
+		Transaction trans = new Transaction(-1, -1, round_recv[round_pos],
+				round_file[round_pos], false);
+		round_pos++;
+		return trans;
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Generate the next round of naive transactions, all shards in parallel.
+	 */
+	private void nextRound(){
+		if(round_recv == null){
+			round_recv = new int[shards * CHUNK];
+			round_file = new int[shards * CHUNK];
+			trans_rand = new Random[shards];
+			for(int s=0; s < shards; s++)
+				trans_rand[s] = new Random(seeds.nextLong());
+		} // Every shard keeps one stream across all rounds
+		invokeShards(new ShardTask(){
+			void run(int shard, Random rand){
+				int hi = (shard + 1) * CHUNK;
+				for(int k=shard * CHUNK; k < hi; k++){
+					round_recv[k] = rand.nextInt(GLOBALS.NUM_USERS);
+					round_file[k] = rand.nextInt(GLOBALS.NUM_FILES);
+				} // Same draws as GeneratorUtils, one block per shard
+			}
+		}, trans_rand);
+		round_pos = 0;
+	}
+
+	/**
+	 * Run a task once per shard, in parallel, each with a fresh Random
+	 * object seeded (in shard order) from 'seeds'.
+	 * @param task Work to be performed by every shard
+	 */
+	private void runShards(ShardTask task){
+		Random[] streams = new Random[shards];
+		for(int s=0; s < shards; s++)
+			streams[s] = new Random(seeds.nextLong());
+		invokeShards(task, streams);
+	}
+
+	/**
+	 * Run a task once per shard, in parallel, and wait for all to finish.
+	 * @param task Work to be performed by every shard
+	 * @param streams Random object private to each shard
+	 */
+	private void invokeShards(ShardTask task, Random[] streams){
+		final ShardAction[] tasks = new ShardAction[shards];
+		for(int s=0; s < shards; s++)
+			tasks[s] = new ShardAction(s, streams[s], task);
+		pool.invoke(new RecursiveAction(){
+			protected void compute(){
+				invokeAll(tasks);
+			}
+		});
+	}
+
+	/**
+	 * Determine where a shard's range of items begins.
+	 * @param count Number of items split among shards
+	 * @param shard Shard whose range is desired (or 'shards', for the end)
+	 * @return First item of 'shard'
+	 */
+	private int bound(int count, int shard){
+		return ((int)(((long)count * shard) / shards));
+	}
+
+	/**
+	 * Create a User, its model determined by its identifier in the same
+	 * way as GeneratorUtils.generateUsers() assigns models.
+	 * @param user_num Numerical user identifier
+	 * @param rand Random object from which the User's fields are drawn
+	 * @return The User created
+	 */
+	private User newUser(int user_num, Random rand){
+		int[] counts = {GLOBALS.USR_PURE, GLOBALS.USR_FEED, GLOBALS.USR_PROV,
+				GLOBALS.USR_DISG, GLOBALS.USR_SYBL};
+		User.Behavior[] models = {User.Behavior.USR_PURE,
+				User.Behavior.USR_FEED, User.Behavior.USR_PROV,
+				User.Behavior.USR_DISG, User.Behavior.USR_SYBL};
+		int first = 0;
+		for(int m=0; m < counts.length; m++){
+			if(user_num < first + counts[m])
+				return (new User(models[m], false, GLOBALS, rand));
+			first += counts[m];
+		} // Malicious users come first, in a fixed order of models
+		return (new User(User.Behavior.USR_GOOD,
+				(user_num - first) < GLOBALS.PRE_TRUSTED, GLOBALS, rand));
+	}
+
+	// ************************** PRIVATE CLASSES ****************************
+
+	/**
+	 * The ShardTask class is the work performed by a single shard.
+	 */
+	private abstract class ShardTask{
+
+		/**
+		 * Perform the work of one shard.
+		 * @param shard Shard number, on [0..shards)
+		 * @param rand Random object private to this shard
+		 */
+		abstract void run(int shard, Random rand);
+	}
+
+	/**
+	 * The ShardAction class is a ForkJoin task running one ShardTask.
+	 */
+	private class ShardAction extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Shard number to be run.
+		 */
+		private final int shard;
+
+		/**
+		 * Random object private to the shard.
+		 */
+		private final Random rand;
+
+		/**
+		 * Work to be performed.
+		 */
+		private final ShardTask task;
+
+		/**
+		 * Construct a ShardAction.
+		 */
+		ShardAction(int shard, Random rand, ShardTask task){
+			this.shard = shard;
+			this.rand = rand;
+			this.task = task;
+		}
+
+		/**
+		 * Run the shard's work.
+		 */
+		protected void compute(){
+			task.run(shard, rand);
+		}
+	}
+
+	/**
+	 * The CopyList class collects the file copies generated by one shard,
+	 * to be added to the Network once all shards have finished.
+	 */
+	private class CopyList{
+
+		/**
+		 * Owner, file and validity of each copy, in order of generation.
+		 */
+		int[] owner = new int[16], file = new int[16];
+		boolean[] valid = new boolean[16];
+
+		/**
+		 * Number of copies collected.
+		 */
+		int size = 0;
+
+		/**
+		 * Collect a copy, drawing its validity from the owner's cleanup rate.
+		 */
+		void add(int user_num, int file_num, Random rand){
+			if(size == owner.length){
+				owner = Arrays.copyOf(owner, size * 2);
+				file = Arrays.copyOf(file, size * 2);
+				valid = Arrays.copyOf(valid, size * 2);
+			} // Grow geometrically
+			owner[size] = user_num;
+			file[size] = file_num;
+			valid[size] = (rand.nextDouble() <=
+					nw.getUser(user_num).getCleanup());
+			size++;
+		}
+	}
+
+}
@@ -0,0 +1,248 @@
+package generator_lib;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import core_lib.BinaryTrace;
+
+/**
+ * The TraceWriter class writes a trace file through a large byte buffer,
+ * formatting integers and booleans directly into it and flushing through a
+ * FileChannel. Optionally, full buffers are handed over a bounded queue to
+ * a background thread, so that generation and disk I/O overlap.
+ */
+class TraceWriter{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Size of each output buffer, in bytes.
+	 */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Number of full buffers that may await the background thread.
+	 */
+	private static final int QUEUE_DEPTH = 2;
+
+	/**
+	 * Marker handed to the background thread once output is complete.
+	 */
+	private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+	/**
+	 * Channel to which the trace file is written.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Buffer currently being filled.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Backing array of 'buffer', accessed directly.
+	 */
+	private byte[] bytes;
+
+	/**
+	 * Position of the next byte to be written in 'bytes'.
+	 */
+	private int pos;
+
+	/**
+	 * Scratch space in which decimal digits are assembled (right-to-left).
+	 */
+	private byte[] digits = new byte[20];
+
+	/**
+	 * Full buffers awaiting the background thread (NULL if synchronous).
+	 */
+	private ArrayBlockingQueue<ByteBuffer> full;
+
+	/**
+	 * Emptied buffers returned by the background thread.
+	 */
+	private ArrayBlockingQueue<ByteBuffer> free;
+
+	/**
+	 * Background thread draining 'full' to 'channel' (NULL if synchronous).
+	 */
+	private Thread io_thread;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a TraceWriter over a new (or truncated) file.
+	 * @param output Filename/path of the trace file to be written
+	 * @param async Whether to write through a background thread
+	 * @throws FileNotFoundException
+	 */
+	TraceWriter(String output, boolean async) throws FileNotFoundException{
+		channel = new FileOutputStream(output).getChannel();
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		bytes = buffer.array();
+		pos = 0;
+		if(!async)
+			return;
+
+		full = new ArrayBlockingQueue<ByteBuffer>(QUEUE_DEPTH + 1);
+		free = new ArrayBlockingQueue<ByteBuffer>(QUEUE_DEPTH + 1);
+		for(int i=0; i < QUEUE_DEPTH; i++)
+			free.add(ByteBuffer.allocate(BUFFER_SIZE));
+		io_thread = new Thread(new Runnable(){
+			public void run(){
+				drain();
+			}
+		}, "TraceWriter");
+		io_thread.start();
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Write a single byte.
+	 * @param b Byte to be written
+	 */
+	void putByte(int b){
+		if(pos == bytes.length)
+			flush();
+		bytes[pos++] = (byte)b;
+	}
+
+	/**
+	 * Write a run of characters, each of which must be ASCII.
+	 * @param text Characters to be written
+	 */
+	void putAscii(String text){
+		for(int i=0; i < text.length(); i++)
+			putByte(text.charAt(i));
+	}
+
+	/**
+	 * Write an integer in decimal.
+	 * @param value Integer to be written
+	 */
+	void putInt(long value){
+		ensure(20);
+		if(value < 0){
+			bytes[pos++] = '-';
+			value = -value;
+		} // Sign first; the magnitudes written here never overflow
+		int d = digits.length;
+		do{
+			digits[--d] = (byte)('0' + (value % 10));
+			value /= 10;
+		} while(value != 0); // Digits are produced least significant first
+		System.arraycopy(digits, d, bytes, pos, digits.length - d);
+		pos += digits.length - d;
+	}
+
+	/**
+	 * Write a boolean as 'true' or 'false', as printf("%b") would.
+	 * @param value Boolean to be written
+	 */
+	void putBoolean(boolean value){
+		putAscii(value ? "true" : "false");
+	}
+
+	/**
+	 * Write a non-negative value as a varint (see core_lib.BinaryTrace).
+	 * @param value Value to be written
+	 */
+	void putVarint(long value){
+		ensure(10);
+		pos = BinaryTrace.putVarint(value, bytes, pos);
+	}
+
+	/**
+	 * Write a value as eight big-endian bytes.
+	 * @param value Value to be written
+	 */
+	void putFixed64(long value){
+		ensure(8);
+		pos = BinaryTrace.putFixed64(value, bytes, pos);
+	}
+
+	/**
+	 * Flush all buffered output, stop any background thread, and close
+	 * the underlying file channel.
+	 */
+	void close(){
+		flush();
+		try{
+			if(io_thread != null){
+				full.put(END);
+				io_thread.join();
+			} // Wait until the background thread has written everything
+			channel.close();
+		} catch(Exception e){
+			abort();
+		} // Output errors are fatal to generation
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Make room for a given number of bytes in the current buffer.
+	 * @param len Number of bytes about to be written
+	 */
+	private void ensure(int len){
+		if(pos + len > bytes.length)
+			flush();
+	}
+
+	/**
+	 * Hand the current buffer over for writing, and begin a fresh one.
+	 */
+	private void flush(){
+		if(pos == 0)
+			return;
+		buffer.limit(pos);
+		buffer.position(0);
+		try{
+			if(io_thread == null){
+				while(buffer.hasRemaining())
+					channel.write(buffer);
+				buffer.clear();
+			} else{
+				full.put(buffer);
+				buffer = free.take();
+				bytes = buffer.array();
+			} // Write directly, or trade buffers with the background thread
+		} catch(Exception e){
+			abort();
+		} // Output errors are fatal to generation
+		pos = 0;
+	}
+
+	/**
+	 * Body of the background thread: write full buffers in the order they
+	 * were queued, returning each for reuse, until the END marker.
+	 */
+	private void drain(){
+		ByteBuffer next;
+		try{
+			while((next = full.take()) != END){
+				while(next.hasRemaining())
+					channel.write(next);
+				next.clear();
+				free.put(next);
+			} // Buffers are written strictly in order
+		} catch(Exception e){
+			abort();
+		} // Output errors are fatal to generation
+	}
+
+	/**
+	 * Report a failure to write the trace file, and exit.
+	 */
+	private static void abort(){
+		System.out.println("\nError: Problems writing output trace file." +
+				" Aborting.\n\n");
+		System.exit(1);
+	}
+
+}
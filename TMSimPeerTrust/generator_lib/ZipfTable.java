@@ -0,0 +1,82 @@
+package generator_lib;
+
+/**
+ * The ZipfTable class precomputes the Zipf frequency of every file, along
+ * with their running sums, for a fixed Zipf constant. Frequencies are then
+ * looked up rather than recomputed, and weights are mapped back to files by
+ * binary search over the running sums. Sums are accumulated in file order,
+ * exactly as a linear scan would, so results match the scan bit for bit.
+ */
+class ZipfTable{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Zipf frequency of each file, indexed by rank.
+	 */
+	private double[] frequency;
+
+	/**
+	 * Running sum of the frequencies of files [0..i], indexed by i.
+	 */
+	private double[] cumulative;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a ZipfTable.
+	 * @param num_files Number of distinct files (ranks)
+	 * @param zipf Zipf constant controlling file popularity
+	 */
+	ZipfTable(int num_files, double zipf){
+		frequency = new double[num_files];
+		cumulative = new double[num_files];
+		double total = 0.0;
+		for(int i=0; i < num_files; i++){
+			frequency[i] = ((1.0) / (Math.pow((i + 2.0), zipf)));
+			total += frequency[i];
+			cumulative[i] = total;
+		} // Each rank is computed once, and summed in order
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Return the Zipf frequency of a given file.
+	 * @param rank File number whose frequency is desired
+	 * @return Fraction describing frequency rate on [0..1]
+	 */
+	double frequency(int rank){
+		return (this.frequency[rank]);
+	}
+
+	/**
+	 * Return the sum of all file Zipf frequencies.
+	 * @return Sum of the frequencies of all files
+	 */
+	double sum(){
+		if(cumulative.length == 0)
+			return 0.0;
+		return (this.cumulative[cumulative.length - 1]);
+	}
+
+	/**
+	 * Given a number on [0..sum()], map that value to a file identifier,
+	 * such that a uniformly chosen number yields each file with probability
+	 * proportional to its Zipf frequency.
+	 * @param weight Number on the [0..sum()] interval
+	 * @return First file whose running sum exceeds 'weight' (else the last)
+	 */
+	int inverse(double weight){
+		int low = 0, high = cumulative.length - 1, mid;
+		while(low < high){
+			mid = (low + high) >>> 1;
+			if(cumulative[mid] > weight)
+				high = mid;
+			else
+				low = mid + 1;
+		} // Running sums never decrease, so bisect on the first to exceed
+		return low;
+	}
+
+}
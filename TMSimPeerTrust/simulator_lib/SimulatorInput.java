@@ -6,7 +6,11 @@ import core_lib.*;
 
 /**
  * The SimulatorInput class assists the TraceSimulator driver program in
- * reading and parsing data from the provided trace file.
+ * reading and parsing data from the provided trace file. The trace is
+ * streamed through a TraceTokenizer, which parses values straight from
+ * bytes rather than splitting Strings line by line. Binary traces (see
+ * core_lib.BinaryTrace) are recognized by their leading magic bytes, and
+ * read through the same methods.
  */
 public class SimulatorInput{
 	
@@ -23,9 +27,14 @@ public class SimulatorInput{
 	private long generator_seed;
 	
 	/**
-	 * Input stream/reader from the trace file.
+	 * Byte-level tokenizer over the trace file.
 	 */
-	private BufferedReader in;
+	private TraceTokenizer in;
+	
+	/**
+	 * Whether the trace is in the binary (rather than textual) format.
+	 */
+	private boolean binary;
 	
 	// *************************** CONSTRUCTORS ******************************
 
@@ -35,14 +44,18 @@ public class SimulatorInput{
 	 */
 	public SimulatorInput(String input){
 		try {
-			FileInputStream fis = new FileInputStream(new File(input));
-			InputStreamReader isr = new InputStreamReader(fis);
-			in = new BufferedReader(isr);
-		} catch(FileNotFoundException e){
+			in = new TraceTokenizer(input);
+			binary = in.startsWith(BinaryTrace.MAGIC);
+			if(binary && (in.readByte() != BinaryTrace.VERSION)){
+				System.out.println("\nError: Unsupported binary trace " +
+						"version. Aborting.\n\n");
+				System.exit(1);
+			} // Only the current binary layout can be read
+		} catch(IOException e){
 			System.out.println("\nError: Problems opening output trace file." +
 					" Aborting.\n\n");
 			System.exit(1);
-		} // Open the BufferedReader on input file.
+		} // Open the TraceTokenizer on input file, detect its format
 	}
 	
 	// ************************** PUBLIC METHODS *****************************
@@ -63,10 +76,33 @@ public class SimulatorInput{
 		double ZIPF = 0.0;
 		boolean SMART_GEN = true;
 		
+		if(binary){
+			NUM_USERS = (int)in.readVarint();
+			NUM_FILES = (int)in.readVarint();
+			NUM_TRANS = (int)in.readVarint();
+			BAND_MAX = (int)in.readVarint();
+			BAND_PER = (int)in.readVarint();
+			WARMUP = (int)in.readVarint();
+			ZIPF = Double.longBitsToDouble(in.readFixed64());
+			PRE_TRUSTED = (int)in.readVarint();
+			USR_GOOD = (int)in.readVarint();
+			USR_PURE = (int)in.readVarint();
+			USR_FEED = (int)in.readVarint();
+			USR_PROV = (int)in.readVarint();
+			USR_DISG = (int)in.readVarint();
+			USR_SYBL = (int)in.readVarint();
+			SMART_GEN = (in.readByte() != 0);
+			this.generator_seed = in.readFixed64();
+			this.GLOBALS = new Globals(NUM_USERS, NUM_FILES, NUM_TRANS, ZIPF, 
+					PRE_TRUSTED, USR_GOOD, USR_PURE, USR_FEED, USR_PROV, 
+					USR_DISG, USR_SYBL, BAND_MAX, BAND_PER, WARMUP, SMART_GEN);
+			return this.GLOBALS;
+		} // Binary header fields are in the same order as textual ones
+		
 		String line;
 		for(int i=0; i <= 15; i++){
-			line = in.readLine();
-			line = line.substring(0, line.indexOf(' '));
+			line = in.nextWord();
+			in.skipLine(); // Remainder of line is a description
 			switch(i){
 				case 0:  NUM_USERS = Integer.parseInt(line); break;
 				case 1:  NUM_FILES = Integer.parseInt(line); break;
@@ -87,7 +123,7 @@ public class SimulatorInput{
 				default: break;
 			} // Parse variables based solely on order in trace		
 		} // This order was determined at time of Trace printing
-		in.readLine(); // Read off blank separator
+		in.skipLine(); // Read off blank separator
 		
 		this.GLOBALS = new Globals(NUM_USERS, NUM_FILES, NUM_TRANS, ZIPF, 
 				PRE_TRUSTED, USR_GOOD, USR_PURE, USR_FEED, USR_PROV, USR_DISG, 
@@ -109,30 +145,29 @@ public class SimulatorInput{
 	 * @throws IOException
 	 */
 	public void parseUsers(Network nw) throws IOException{
-		String line, data_str;
 		boolean pre_trusted;
 		double cleanup_pct, honest_pct;
 		User.Behavior model;
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			line = in.readLine();
-			data_str = line.substring(1, line.indexOf(','));
-			cleanup_pct = Double.parseDouble(data_str);
-			
-			line = line.substring(line.indexOf(',')+1, line.length());
-			data_str = line.substring(0, line.indexOf(','));
-			honest_pct = Double.parseDouble(data_str);
-			
-			line = line.substring(line.indexOf(',')+1, line.length());
-			data_str = line.substring(0, line.indexOf(','));
-			model = User.IntToBehavior(Integer.parseInt(data_str));
-			
-			line = line.substring(line.indexOf(',')+1, line.length()-1);
-			pre_trusted = Boolean.parseBoolean(line);
-					
+			if(binary){
+				cleanup_pct = Double.longBitsToDouble(in.readFixed64());
+				honest_pct = Double.longBitsToDouble(in.readFixed64());
+				model = User.IntToBehavior(in.readByte());
+				pre_trusted = (in.readByte() != 0);
+				nw.setUser(i, new User(model, cleanup_pct, honest_pct, 
+						pre_trusted, nw.GLOBALS));
+				continue;
+			} // Binary user records are fixed-width
+			cleanup_pct = in.nextDouble();
+			honest_pct = in.nextDouble();
+			model = User.IntToBehavior(in.nextInt());
+			pre_trusted = in.nextBoolean();
+			in.skipLine();
 			nw.setUser(i, new User(model, cleanup_pct, honest_pct, 
 					pre_trusted, nw.GLOBALS));
 		} // We expect 'NUM_USERS' lines of data
-		in.readLine(); // Read off blank separator
+		if(!binary)
+			in.skipLine(); // Read off blank separator
 	}
 
 	/**
@@ -143,17 +178,21 @@ public class SimulatorInput{
 	public void parseLibraries(Network nw) throws IOException{
 		int user, file;
 		boolean valid;
-		String data_str, line = in.readLine();
-		while(line.length() > 1){
-			data_str = line.substring(1, line.indexOf(','));
-			user = Integer.parseInt(data_str);
-			line = line.substring(line.indexOf(',')+1, line.length());
-			data_str = line.substring(0, line.indexOf(','));
-			file = Integer.parseInt(data_str);
-			data_str = line.substring(line.indexOf(',')+1, line.length()-1);
-			valid = Boolean.parseBoolean(data_str);
+		if(binary){
+			long owner;
+			for(long copies = in.readVarint(); copies > 0; copies--){
+				owner = in.readVarint();
+				file = (int)in.readVarint();
+				nw.addFile((int)(owner >>> 1), file, (owner & 1) != 0);
+			} // Copy count precedes the (owner, valid) and file varints
+			return;
+		} // Binary libraries are not terminated by a blank line
+		while(!in.blankLine()){
+			user = in.nextInt();
+			file = in.nextInt();
+			valid = in.nextBoolean();
+			in.skipLine();
 			nw.addFile(user, file, valid);
-			line = in.readLine();
 		} // Parse lines pertaining to file libraries, add files accordingly
 	}
 	
@@ -163,11 +202,13 @@ public class SimulatorInput{
 	 * @throws IOException
 	 */
 	public Transaction parseNextTransaction() throws IOException{
-		int recv, file;
-		String line = in.readLine();
-		recv = Integer.parseInt(line.substring(1, line.indexOf(',')));
-		line = line.substring(line.indexOf(',')+1, line.length()-1);
-		file = Integer.parseInt(line);
+		if(binary){
+			int recv = (int)in.readVarint();
+			return (new Transaction(-1, -1, recv, (int)in.readVarint(), true));
+		} // Binary transactions are just two varints
+		int recv = in.nextInt();
+		int file = in.nextInt();
+		in.skipLine();
 		return (new Transaction(-1, -1, recv, file, true));
 	}
 	
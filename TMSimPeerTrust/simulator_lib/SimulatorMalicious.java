@@ -1,7 +1,6 @@
 
 package simulator_lib;
 
-import java.util.*;
 import trust_system_lib.*;
 import core_lib.*;
 
@@ -28,11 +27,6 @@ public class SimulatorMalicious{
 	 */
 	private final Network nw;
 	
-	/**
-	 * List containing UserID's of those participating in malicious-collective
-	 */
-	private List<Integer> collective;
-	
 	// *************************** CONSTRUCTORS ******************************
 	
 	/**
@@ -59,11 +53,12 @@ public class SimulatorMalicious{
 		if(cycle == 0) // We have to get this init'ed before update called
 			ALG.computeTrust(recv, cycle);
 		
+		BehaviorIndex behaviors = nw.getBehaviorIndex();
 		if(this.strat == MAL_STRATEGY.NAIVE)
 			ALG.computeTrust(recv, cycle);
 		
 		else if(this.strat == MAL_STRATEGY.ISOLATED){	
-			if(nw.getUser(recv).getModel() != User.Behavior.USR_GOOD){
+			if(!behaviors.isGood(recv)){
 				this.setVecRelations(Relation.Copy.HONEST, recv, ALG);
 				ALG.computeTrust(recv, cycle);
 				this.setVecRelations(Relation.Copy.GLOBAL, recv, ALG);
@@ -71,27 +66,22 @@ public class SimulatorMalicious{
 				ALG.computeTrust(recv, cycle);
 			
 		} else if(this.strat == MAL_STRATEGY.COLLECTIVE){
-			if(cycle == 0){
-				collective = new ArrayList<Integer>();
-				for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-					if(nw.getUser(i).getModel() != User.Behavior.USR_GOOD)
-						collective.add(i);		
-				} // Add all non-'good' users to a collective
-			} else{
-				if(nw.getUser(recv).getModel() != User.Behavior.USR_GOOD){
-					int cur;
-					for(int i=0; i < collective.size(); i++){
-						cur = collective.get(i);
+			if(cycle != 0){
+				if(!behaviors.isGood(recv)){
+					int group = behaviors.collectiveOf(recv), cur;
+					int size = behaviors.collectiveSize(group);
+					for(int i=0; i < size; i++){
+						cur = behaviors.collectiveMember(group, i);
 						this.setVecRelations(Relation.Copy.HONEST, cur, ALG);
-					} // Get all malicious peers to share honest data
+					} // Get all peers in recv's collective to share honest data
 					ALG.computeTrust(recv, cycle);	
-					for(int i=0; i < collective.size(); i++){
-						cur = collective.get(i);
+					for(int i=0; i < size; i++){
+						cur = behaviors.collectiveMember(group, i);
 						this.setVecRelations(Relation.Copy.GLOBAL, cur, ALG);
 					} // Switch all settings back before exit
 				} else
 					ALG.computeTrust(recv, cycle);
-			} // Setup strategy the first time, apply thereafter
+			} // Collectives are indexed by Network; apply after first cycle
 		} // Change data set according to malicious strategy
 	}
 	
@@ -112,15 +102,18 @@ public class SimulatorMalicious{
 	
 	/**
 	 * Set all (user->x) relations in this Network to report a particular 
-	 * feedback type when queried, where 'user' is a fixed User.
+	 * feedback type when queried, where 'user' is a fixed User. This is a
+	 * constant-time view switch in the RelationStore; the TrustAlg is then
+	 * told, and only if it cannot absorb the change are updates replayed.
 	 * @param setting Feedback type which we want to be reported
 	 * @param vec User (numerical) vector whose relations are to be set 
 	 */
 	private void setVecRelations(Relation.Copy setting, int vec, TrustAlg ALG){
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			nw.getUserRelation(vec, i).setHistory(setting);
+		nw.getRelations().setSourceHistory(vec, setting);
+		if(ALG.historyChanged(vec))
+			return;
+		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++)
 			ALG.update(new Transaction(-1, i, vec, -1, false));
-		} // Set all relations in some vector to a desired feedback setting
 	} 
 
 }
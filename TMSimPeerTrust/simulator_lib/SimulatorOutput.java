@@ -39,13 +39,16 @@ public class SimulatorOutput{
 
 	/**
 	 * Write header to the output/statistics file, mostly global variable data.
-	 * @param GLOBALS The Network parameterization object
+	 * User counts are those of the Network's BehaviorIndex.
+	 * @param nw The Network which was simulated
 	 * @param gen_seed Random seed used in trace generation
 	 * @param TALG The trust algorithm being used for this run
 	 * @param STRATEGY Malicious strategy being applied during this simulation
 	 */
-	public void printHeader(Globals GLOBALS, long gen_seed, TrustAlg TALG, 
+	public void printHeader(Network nw, long gen_seed, TrustAlg TALG, 
 			SimulatorMalicious.MAL_STRATEGY STRATEGY){
+		Globals GLOBALS = nw.GLOBALS;
+		BehaviorIndex behaviors = nw.getBehaviorIndex();
 		out.print("\n----------- TRACE PARAMETERS ---------");
 		out.printf("\n>Number of Peers:        %d", GLOBALS.NUM_USERS);
 		out.printf("\n>Number of Files:        %d", GLOBALS.NUM_FILES);
@@ -55,12 +58,18 @@ public class SimulatorOutput{
 		out.printf("\n>Warm-up Transactions:   %d", GLOBALS.WARMUP);
 		out.printf("\n>Zipf Constant:          %f", GLOBALS.ZIPF);
 		out.printf("\n>Pre-Trusted Users:      %d", GLOBALS.PRE_TRUSTED);
-		out.printf("\n>Good Behaving Users:    %d", GLOBALS.USR_GOOD);
-		out.printf("\n>Purely Malicious Users: %d", GLOBALS.USR_PURE);
-		out.printf("\n>Feedback Skewing Users: %d", GLOBALS.USR_FEED);
-		out.printf("\n>Maligned Providers:     %d", GLOBALS.USR_PROV);	
-		out.printf("\n>Disguised Malignants:   %d", GLOBALS.USR_DISG);
-		out.printf("\n>Sybil Attackers:        %d", GLOBALS.USR_SYBL);
+		out.printf("\n>Good Behaving Users:    %d", 
+				behaviors.count(User.Behavior.USR_GOOD));
+		out.printf("\n>Purely Malicious Users: %d", 
+				behaviors.count(User.Behavior.USR_PURE));
+		out.printf("\n>Feedback Skewing Users: %d", 
+				behaviors.count(User.Behavior.USR_FEED));
+		out.printf("\n>Maligned Providers:     %d", 
+				behaviors.count(User.Behavior.USR_PROV));	
+		out.printf("\n>Disguised Malignants:   %d", 
+				behaviors.count(User.Behavior.USR_DISG));
+		out.printf("\n>Sybil Attackers:        %d", 
+				behaviors.count(User.Behavior.USR_SYBL));
 		out.printf("\n>Smart Trans Gen?:       %b", GLOBALS.SMART_GEN);
 		out.printf("\n>Generator Rand Seed:    %d", gen_seed);
 		out.printf("\n>Simulator Rand Seed:    %d\n\n", GLOBALS.RAND_SEED);
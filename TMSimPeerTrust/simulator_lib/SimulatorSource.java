@@ -61,6 +61,8 @@ public class SimulatorSource{
 	
 	/**
 	 * Choose the best (most trusted) available source for a transaction.
+	 * Only owners of the file are visited; ties are broken uniformly at
+	 * random by reservoir sampling, in the same single pass.
 	 * @param nw Network in which transaction will take place
 	 * @param cycle The current cycle
 	 * @param recv Identifier of the user requesting the file
@@ -68,42 +70,37 @@ public class SimulatorSource{
 	 * @return Identifier of source user, or -1 if no source exists
 	 */ 
 	private static int sourceBest(Network nw, int cycle, int recv, int file){
-		double max_trust = Double.NEGATIVE_INFINITY;
-		int pos_sources = 0;
-		double[] scratch_vector = new double[nw.GLOBALS.NUM_USERS];
+		TrustOrder index = nw.getTrustOrder();
+		if((index != null) && index.preferred(recv, nw.fileOwners(file)))
+			return (sourceOrdered(nw, cycle, recv, file, true));
 		
-		boolean cond1, cond2;
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			cond1 = nw.hasFile(i, file);
-			cond2 = nw.getUser(i).BWidthAvailableUL(cycle);
-			if(!cond1 || !cond2)
-				scratch_vector[i] = Double.NEGATIVE_INFINITY;
-			else if(nw.getUserRelation(recv, i).getTrust() > max_trust){
+		RelationStore relations = nw.getRelations();
+		double max_trust = Double.NEGATIVE_INFINITY, trust;
+		int pos_sources = 0, source = -1, owner;
+		
+		for(int k=0; k < nw.fileOwners(file); k++){
+			owner = nw.fileOwner(file, k);
+			if(nw.fileOwnerRepeat(file, k) || 
+					!nw.getUser(owner).BWidthAvailableUL(cycle))
+				continue;
+			trust = relations.getTrust(recv, owner);
+			if(trust > max_trust){
 				pos_sources = 1;
-				max_trust = nw.getUserRelation(recv, i).getTrust();
-				scratch_vector[i] = max_trust;
-			} else if(nw.getUserRelation(recv, i).getTrust() == max_trust){
+				max_trust = trust;
+				source = owner;
+			} else if(trust == max_trust){
 				pos_sources++;
-				scratch_vector[i] = max_trust;
-			} else
-				scratch_vector[i] = Double.NEGATIVE_INFINITY;
-		} // Count quantity of peers with maximum trust value
-		
-		if(pos_sources == 0)
-			return -1; // If no sources available, report that fact
-		
-		int source_num = (int)((nw.GLOBALS.RAND.nextDouble()*pos_sources)+1.0);
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			if(scratch_vector[i] == max_trust)
-				source_num--;
-			if(source_num == 0)
-				return i; // Break loop once we have randomly selected provider 
-		} // Iterate over all peers
-		return -1; // Unused
+				if(keepSample(nw, pos_sources))
+					source = owner;
+			} // A newly tied peer replaces the pick with prob. 1/ties
+		} // Visit each owner of the file with bandwidth available
+		return source; // -1 if no sources available
 	}
 
 	/**
 	 * Choose the worse (least trusted) available source for a transaction.
+	 * Only owners of the file are visited; ties are broken uniformly at
+	 * random by reservoir sampling, in the same single pass.
 	 * @param nw Network in which transaction will take place
 	 * @param cycle The current cycle
 	 * @param recv Identifier of the user requesting the file
@@ -111,38 +108,66 @@ public class SimulatorSource{
 	 * @return Identifier of source user, or -1 if no source exists
 	 */
 	private static int sourceWorst(Network nw, int cycle, int recv, int file){
-		double min_trust = Double.POSITIVE_INFINITY;
-		int pos_sources = 0;
-		double[] scratch_vector = new double[nw.GLOBALS.NUM_USERS];
+		TrustOrder index = nw.getTrustOrder();
+		if((index != null) && index.preferred(recv, nw.fileOwners(file)))
+			return (sourceOrdered(nw, cycle, recv, file, false));
 		
-		boolean cond1, cond2;
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			cond1 = nw.hasFile(i, file);
-			cond2 = nw.getUser(i).BWidthAvailableUL(cycle);
-			if(!cond1 || !cond2)
-				scratch_vector[i] = Double.POSITIVE_INFINITY;
-			else if(nw.getUserRelation(recv, i).getTrust() < min_trust){
+		RelationStore relations = nw.getRelations();
+		double min_trust = Double.POSITIVE_INFINITY, trust;
+		int pos_sources = 0, source = -1, owner;
+		
+		for(int k=0; k < nw.fileOwners(file); k++){
+			owner = nw.fileOwner(file, k);
+			if(nw.fileOwnerRepeat(file, k) || 
+					!nw.getUser(owner).BWidthAvailableUL(cycle))
+				continue;
+			trust = relations.getTrust(recv, owner);
+			if(trust < min_trust){
 				pos_sources = 1;
-				min_trust = nw.getUserRelation(recv, i).getTrust();
-				scratch_vector[i] = min_trust;
-			} else if(nw.getUserRelation(recv, i).getTrust() == min_trust){
+				min_trust = trust;
+				source = owner;
+			} else if(trust == min_trust){
 				pos_sources++;
-				scratch_vector[i] = min_trust;
-			} else
-				scratch_vector[i] = Double.POSITIVE_INFINITY;
-		} // Count quantity of peers with maximum trust value
-		
-		if(pos_sources == 0)
-			return -1; // If no sources available, report that fact
+				if(keepSample(nw, pos_sources))
+					source = owner;
+			} // A newly tied peer replaces the pick with prob. 1/ties
+		} // Visit each owner of the file with bandwidth available
+		return source; // -1 if no sources available
+	}
+	
+	/**
+	 * Choose the best or worst available source by walking the receiver's
+	 * trust order from the appropriate end. The walk stops at the first
+	 * trust value past that of the first eligible user; ties among eligible 
+	 * users are broken uniformly at random by reservoir sampling.
+	 * @param nw Network in which transaction will take place
+	 * @param cycle The current cycle
+	 * @param recv Identifier of the user requesting the file
+	 * @param file Identifier of the file being requested
+	 * @param best TRUE to seek the most trusted source; FALSE the least
+	 * @return Identifier of source user, or -1 if no source exists
+	 */
+	private static int sourceOrdered(Network nw, int cycle, int recv, 
+			int file, boolean best){
+		RelationStore relations = nw.getRelations();
+		int[] order = nw.getTrustOrder().order(recv);
+		double found_trust = 0.0, trust;
+		int pos_sources = 0, source = -1, user;
 		
-		int source_num = (int)((nw.GLOBALS.RAND.nextDouble()*pos_sources)+1.0);
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			if(scratch_vector[i] == min_trust)
-				source_num--;
-			if(source_num == 0)
-				return i; // Break loop once we have randomly selected provider 
-		} // Iterate over all peers
-		return -1; // Unused
+		for(int k=0; k < order.length; k++){
+			user = best ? order[k] : order[order.length - 1 - k];
+			trust = relations.getTrust(recv, user);
+			if((pos_sources > 0) && (trust != found_trust))
+				break; // Past the extreme value; no further ties possible
+			if(!nw.hasFile(user, file) || 
+					!nw.getUser(user).BWidthAvailableUL(cycle))
+				continue;
+			pos_sources++;
+			found_trust = trust;
+			if(keepSample(nw, pos_sources))
+				source = user;
+		} // Walk users by trust until the extreme eligible value is passed
+		return source; // -1 if no sources available
 	}
 	
 	/**
@@ -154,31 +179,31 @@ public class SimulatorSource{
 	 * @return Identifier of source user, or -1 if no source exists
 	 */
 	private static int sourceRandom(Network nw, int cycle, int recv, int file){
-		int pos_sources = 0;
-		double[] scratch_vector = new double[nw.GLOBALS.NUM_USERS];
-		
-		boolean cond1, cond2;
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			cond1 = nw.hasFile(i, file);
-			cond2 = nw.getUser(i).BWidthAvailableUL(cycle);
-			if(cond1 && cond2){
-				pos_sources++;
-				scratch_vector[i] = Double.POSITIVE_INFINITY;
-			} else
-				scratch_vector[i] = Double.NEGATIVE_INFINITY;
-		} // Count quantity of potential sources
+		int pos_sources = 0, source = -1, owner;
 		
-		if(pos_sources == 0)
-			return -1; // If no sources exist, this should be noted
-		
-		int source_num = (int)((nw.GLOBALS.RAND.nextDouble()*pos_sources)+1.0);
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			if(scratch_vector[i] == Double.POSITIVE_INFINITY)
-				source_num--;
-			if(source_num == 0)
-				return i; // Break loop once we have randomly selected provider 
-		} // Iterate over all peers
-		return -1; // Unused	
+		for(int k=0; k < nw.fileOwners(file); k++){
+			owner = nw.fileOwner(file, k);
+			if(nw.fileOwnerRepeat(file, k) || 
+					!nw.getUser(owner).BWidthAvailableUL(cycle))
+				continue;
+			pos_sources++;
+			if(keepSample(nw, pos_sources))
+				source = owner;
+		} // Reservoir-sample one owner with bandwidth available
+		return source; // -1 if no sources exist
+	}
+	
+	/**
+	 * Reservoir sampling step: decide whether the n-th candidate seen
+	 * replaces the current pick, such that each is kept with prob. 1/n.
+	 * @param nw Network whose random generator should be used
+	 * @param seen Number of candidates seen so far, including this one
+	 * @return TRUE if the current candidate should become the pick
+	 */
+	private static boolean keepSample(Network nw, int seen){
+		if(seen == 1)
+			return true; // No random draw needed for a sole candidate
+		return (nw.GLOBALS.RAND.nextInt(seen) == 0);
 	}
 	
 }
@@ -1,6 +1,8 @@
 
 package simulator_lib;
 
+import java.util.ArrayList;
+
 import core_lib.*;
 import trust_system_lib.TrustAlg;
 
@@ -11,6 +13,13 @@ import trust_system_lib.TrustAlg;
  */
 public class SimulatorUtils{
 	
+	// ************************** PRIVATE FIELDS *****************************
+	
+	/**
+	 * Transactions committed in the current cycle, handed to the TrustAlg.
+	 */
+	private ArrayList<Transaction> batch = new ArrayList<Transaction>();
+	
 	// ************************** PUBLIC METHODS *****************************
 
 	/**
@@ -38,28 +47,34 @@ public class SimulatorUtils{
 		while(nw.queueSize() != 0){
 			transactionCommit(nw, (cycle+inc), ALG);
 			inc++;
-		} // Commit all remaining transactions in delay queue	
+		} // Drain the delay queue bucket by bucket, in commit order	
 	}
 	
 	// ************************** PRIVATE METHODS ****************************
 
 	/**
-	 * If ready (complete), commit the Transaction atop the delay queue.
-	 * @param nw Network whose queued Transaction will commit (if ready)
+	 * Commit every Transaction in the delay queue that completes this cycle.
+	 * Files and feedback are committed first; the TrustAlg then receives the
+	 * whole batch at once.
+	 * @param nw Network whose queued Transactions will commit (if ready)
 	 * @param cycle The current cycle
 	 * @param ALG Trust algorithm instance managing Network 'nw'
-	 * @return The committed transaction, or NULL if none was committed
+	 * @return The number of transactions committed
 	 */
-	private Transaction transactionCommit(Network nw, int cycle, TrustAlg ALG){
-		Transaction cur_trans = nw.peekQueue();
-		if((cur_trans != null) && (cur_trans.getCommit() == cycle)){
+	private int transactionCommit(Network nw, int cycle, TrustAlg ALG){
+		Transaction cur_trans;
+		int due = nw.takeDue(cycle);
+		if(due == 0)
+			return 0;
+		batch.clear();
+		for(int k=0; k < due; k++){
+			cur_trans = nw.dueTrans(k);
 			commitFile(nw, cur_trans);
 			commitFBack(nw, cur_trans);
-			ALG.update(cur_trans);
-			nw.dequeueTrans();
-			return cur_trans;
-		} else // If transaction at queue head is ready to be committed, do so
-			return null;
+			batch.add(cur_trans);
+		} // Commit the whole batch, in the order it was queued
+		ALG.updateBatch(batch);
+		return due;
 	}
 	
 	/**
@@ -69,15 +84,16 @@ public class SimulatorUtils{
 	 */
 	private void commitFile(Network nw, Transaction trans){
 		int recv = trans.getRecv();
+		boolean good = nw.getBehaviorIndex().isGood(recv);
 		double rand = nw.GLOBALS.RAND.nextDouble();
 		if(!trans.getValid()){ 
 			nw.STATS.NUM_INVAL_TRANS++;
-			if(nw.getUser(recv).getModel() == User.Behavior.USR_GOOD)
+			if(good)
 				nw.STATS.NUM_GOOD_FAIL++;
 			if(rand > nw.getUser(recv).getCleanup())
 				nw.addFile(trans.getRecv(), trans.getFile(), trans.getValid());
 		} else{ // If a bad file is received
-			if(nw.getUser(recv).getModel() == User.Behavior.USR_GOOD){
+			if(good){
 				nw.STATS.NUM_GOOD_SUCC++;
 				nw.addFile(trans.getRecv(), trans.getFile(), trans.getValid());
 			} else if(rand > (1.0 - nw.getUser(recv).getCleanup()))
@@ -96,32 +112,34 @@ public class SimulatorUtils{
 		int send = trans.getSend();
 		int recv = trans.getRecv();
 		
-		boolean a = nw.getUser(send).getModel() == User.Behavior.USR_SYBL;
-		boolean b = nw.getUser(recv).getModel() == User.Behavior.USR_SYBL;
+		BehaviorIndex behaviors = nw.getBehaviorIndex();
+		boolean a = behaviors.is(send, User.Behavior.USR_SYBL);
+		boolean b = behaviors.is(recv, User.Behavior.USR_SYBL);
 		if(a || b){
 			nw.STATS.NUM_FBACK_SYBL++;
 			return;
 		} // If sender or receiver is Sybil, no feedback is recorded.
 		
 			// Store accurate interaction history 
+		RelationStore relations = nw.getRelations();
 		if(trans.getValid())
-			nw.getUserRelation(recv, send).incHonestPos();
+			relations.incHonestPos(recv, send);
 		else
-			nw.getUserRelation(recv, send).incHonestNeg();
+			relations.incHonestNeg(recv, send);
 		
 		double rand = nw.GLOBALS.RAND.nextDouble();
 		if(rand > nw.getUser(recv).getHonesty()){
 			nw.STATS.NUM_FBACK_LIES++;
 			if(trans.getValid())
-				nw.getUserRelation(recv, send).incGlobalNeg();
+				relations.incGlobalNeg(recv, send);
 			else
-				nw.getUserRelation(recv, send).incGlobalPos();
+				relations.incGlobalPos(recv, send);
 		} else{ // Some users will be dishonest in providing global-feedback
 			nw.STATS.NUM_FBACK_TRUE++;
 			if(trans.getValid())
-				nw.getUserRelation(recv, send).incGlobalPos();
+				relations.incGlobalPos(recv, send);
 			else
-				nw.getUserRelation(recv, send).incGlobalNeg();
+				relations.incGlobalNeg(recv, send);
 		} // Whereas other users will provide truthful global-feedback
 	}
 	
@@ -164,7 +182,7 @@ public class SimulatorUtils{
 		
 		boolean valid = nw.fileCopyValid(file, send);
 		int commit = cycle + nw.GLOBALS.BAND_PER;
-		Transaction t = new Transaction(commit, send, recv, file, valid);
+		Transaction t = nw.newTrans(commit, send, recv, file, valid);
 		nw.enqueueTrans(t);
 	}	
 
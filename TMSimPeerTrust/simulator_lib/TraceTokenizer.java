@@ -0,0 +1,303 @@
+package simulator_lib;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * The TraceTokenizer class reads a trace file as a stream of bytes, through
+ * a fixed-size buffer refilled from a FileChannel. Numbers are parsed
+ * directly from those bytes, so traces of any size are read in constant
+ * memory and without allocating a String per line.
+ */
+class TraceTokenizer{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Size of the read buffer, in bytes.
+	 */
+	private static final int BUFFER_SIZE = 1 << 20;
+
+	/**
+	 * Channel from which the trace file is read.
+	 */
+	private FileChannel channel;
+
+	/**
+	 * Buffer holding the current chunk of the trace file.
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * Backing array of 'buffer', accessed directly.
+	 */
+	private byte[] bytes;
+
+	/**
+	 * Position of the next unread byte in 'bytes'.
+	 */
+	private int pos;
+
+	/**
+	 * Number of valid bytes in 'bytes'.
+	 */
+	private int limit;
+
+	/**
+	 * Scratch space used to assemble the rare textual (e.g. double) tokens.
+	 */
+	private StringBuilder token = new StringBuilder();
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a TraceTokenizer positioned at the start of a file.
+	 * @param input Filename/path to the trace file to open
+	 * @throws FileNotFoundException
+	 */
+	TraceTokenizer(String input) throws FileNotFoundException{
+		channel = new FileInputStream(new File(input)).getChannel();
+		buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		bytes = buffer.array();
+		pos = 0;
+		limit = 0;
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Look at the next byte of the file without consuming it.
+	 * @return The next byte (0..255), or -1 at end of file
+	 * @throws IOException
+	 */
+	int peek() throws IOException{
+		if((pos == limit) && !fill())
+			return -1;
+		return (bytes[pos] & 0xFF);
+	}
+
+	/**
+	 * Consume the next byte of the file.
+	 * @return The next byte (0..255), or -1 at end of file
+	 * @throws IOException
+	 */
+	int read() throws IOException{
+		if((pos == limit) && !fill())
+			return -1;
+		return (bytes[pos++] & 0xFF);
+	}
+
+	/**
+	 * Parse the next integer, skipping any non-numeric bytes before it.
+	 * @return The integer read
+	 * @throws IOException
+	 */
+	int nextInt() throws IOException{
+		return ((int)nextLong());
+	}
+
+	/**
+	 * Parse the next long integer, skipping any non-numeric bytes before it.
+	 * @return The long integer read
+	 * @throws IOException
+	 */
+	long nextLong() throws IOException{
+		int b = read();
+		while((b != -1) && (b != '-') && ((b < '0') || (b > '9')))
+			b = read();
+		if(b == -1)
+			throw new EOFException("Trace ended where a number was expected");
+
+		boolean negative = (b == '-');
+		if(negative)
+			b = read();
+		long value = 0;
+		while((b >= '0') && (b <= '9')){
+			value = (value * 10) + (b - '0');
+			b = peek();
+			if((b >= '0') && (b <= '9'))
+				pos++;
+		} // Accumulate digits, leaving the first non-digit unread
+		return (negative ? -value : value);
+	}
+
+	/**
+	 * Parse the next floating-point value, skipping separators before it.
+	 * Doubles only appear in trace headers, so they are handed to the JDK.
+	 * @return The double read
+	 * @throws IOException
+	 */
+	double nextDouble() throws IOException{
+		return (Double.parseDouble(nextWord()));
+	}
+
+	/**
+	 * Parse the next boolean, skipping separators before it.
+	 * @return TRUE if the next word is 'true' (in any case); else FALSE
+	 * @throws IOException
+	 */
+	boolean nextBoolean() throws IOException{
+		skipSeparators();
+		int b = peek();
+		boolean value = (b == 't') || (b == 'T');
+		while(((b = peek()) != -1) && !isSeparator(b))
+			pos++;
+		return value; // Mirrors Boolean.parseBoolean() on trace output
+	}
+
+	/**
+	 * Read the next word: a run of bytes delimited by separators.
+	 * @return The word read
+	 * @throws IOException
+	 */
+	String nextWord() throws IOException{
+		skipSeparators();
+		token.setLength(0);
+		int b;
+		while(((b = peek()) != -1) && !isSeparator(b)){
+			token.append((char)b);
+			pos++;
+		} // Collect bytes up to the next separator
+		return token.toString();
+	}
+
+	/**
+	 * Consume the remainder of the current line, including its terminator.
+	 * @throws IOException
+	 */
+	void skipLine() throws IOException{
+		int b = read();
+		while((b != -1) && (b != '\n'))
+			b = read();
+	}
+
+	/**
+	 * Consume a blank line, if the next line is one (or the file has ended).
+	 * @return TRUE if a blank line (or end of file) was found; else FALSE
+	 * @throws IOException
+	 */
+	boolean blankLine() throws IOException{
+		if(peek() == '\r')
+			pos++;
+		int b = peek();
+		if(b == -1)
+			return true;
+		if(b != '\n')
+			return false;
+		pos++;
+		return true;
+	}
+
+	// ---------------- BINARY METHODS ----
+
+	/**
+	 * Consume the given bytes if the file continues with exactly them.
+	 * Only meaningful at the very start of the file, before any parsing.
+	 * @param expected Bytes being tested for
+	 * @return TRUE if 'expected' was found and consumed; else FALSE
+	 * @throws IOException
+	 */
+	boolean startsWith(byte[] expected) throws IOException{
+		while((limit < expected.length) && (limit < bytes.length)){
+			int read = channel.read(ByteBuffer.wrap(bytes, limit,
+					bytes.length - limit));
+			if(read < 0)
+				break;
+			limit += read;
+		} // Ensure enough of the file is buffered to compare
+		if(limit - pos < expected.length)
+			return false;
+		for(int i=0; i < expected.length; i++)
+			if(bytes[pos + i] != expected[i])
+				return false;
+		pos += expected.length;
+		return true;
+	}
+
+	/**
+	 * Consume a single raw byte, which must be present.
+	 * @return The byte read (0..255)
+	 * @throws IOException
+	 */
+	int readByte() throws IOException{
+		int b = read();
+		if(b == -1)
+			throw new EOFException("Binary trace ended unexpectedly");
+		return b;
+	}
+
+	/**
+	 * Decode an unsigned varint (see core_lib.BinaryTrace).
+	 * @return The value read
+	 * @throws IOException
+	 */
+	long readVarint() throws IOException{
+		long value = 0;
+		int b, shift = 0;
+		do{
+			b = readByte();
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0); // Low seven bits first
+		return value;
+	}
+
+	/**
+	 * Decode a big-endian eight byte value.
+	 * @return The value read
+	 * @throws IOException
+	 */
+	long readFixed64() throws IOException{
+		long value = 0;
+		for(int i=0; i < 8; i++)
+			value = (value << 8) | readByte();
+		return value;
+	}
+
+	/**
+	 * Close the underlying file channel.
+	 * @throws IOException
+	 */
+	void close() throws IOException{
+		channel.close();
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Refill the buffer with the next chunk of the file.
+	 * @return TRUE if any bytes were read; FALSE at end of file
+	 * @throws IOException
+	 */
+	private boolean fill() throws IOException{
+		buffer.clear();
+		int read = 0;
+		while(read == 0)
+			read = channel.read(buffer);
+		pos = 0;
+		limit = Math.max(read, 0);
+		return (read > 0);
+	}
+
+	/**
+	 * Skip bytes separating tokens on a line (but not line ends).
+	 * @throws IOException
+	 */
+	private void skipSeparators() throws IOException{
+		int b;
+		while(((b = peek()) != -1) && (b != '\n') && isSeparator(b))
+			pos++;
+	}
+
+	/**
+	 * Determine whether a byte separates tokens in the textual trace.
+	 * @param b Byte being tested
+	 * @return TRUE if 'b' is punctuation or whitespace; else FALSE
+	 */
+	private static boolean isSeparator(int b){
+		return ((b == ' ') || (b == ',') || (b == '(') || (b == ')') ||
+				(b == '\t') || (b == '\r') || (b == '\n'));
+	}
+
+}
@@ -1,6 +1,8 @@
 
 package trust_system_lib;
 
+import java.util.Collection;
+
 import core_lib.*;
 
 /**
@@ -9,6 +11,16 @@ import core_lib.*;
  */
 public class EigenTM implements TrustAlg{
 	
+	// ************************** PUBLIC FIELDS ******************************
+	
+	/**
+	 * The Solver enumeration lists the ways the global trust vector may be
+	 * re-solved after feedback changes. COLD restarts from the pre-trust 
+	 * vector, WARM resumes power iteration from the previous fixed point, 
+	 * and PUSH propagates only the residual introduced by changed columns.
+	 */
+	public enum Solver{COLD, WARM, PUSH};
+	
 	// ************************* PROTECTED FIELDS ****************************
 	
 	/**
@@ -29,6 +41,17 @@ public class EigenTM implements TrustAlg{
 	 */
 	private final double EPSILON = 0.001;
 	
+	/**
+	 * Residual magnitude below which the PUSH solver leaves an entry alone.
+	 * A quarter of EPSILON keeps results within EPSILON of the COLD solver.
+	 */
+	private final double PUSH_EPSILON = EPSILON / 4;
+	
+	/**
+	 * Strategy used to re-solve the global trust vector.
+	 */
+	private final Solver solver;
+	
 	/**
 	 * Pre-trusted peer distribution and weighting vector
 	 */
@@ -45,23 +68,103 @@ public class EigenTM implements TrustAlg{
 	private double[] vectorB;
 	
 	/**
-	 * Matrix storing persistent normalized (pre-multiplication) values.
+	 * Sparse matrix storing persistent normalized (pre-multiplication) values.
+	 */
+	private SparseTrustMatrix normalized;
+	
+	/**
+	 * Dirty counter, bumped whenever committed feedback alters 'normalized'.
+	 */
+	private int matrix_version = 0;
+	
+	/**
+	 * Value of 'matrix_version' when 'vectorA' was last solved, or -1.
+	 */
+	private int solved_version = -1;
+	
+	/**
+	 * Iteration cap used when 'vectorA' was last solved.
+	 */
+	private int solved_iters = -1;
+	
+	/**
+	 * Copy of 'vectorA' as last solved, shared as the trust row of every
+	 * user computing trust against it; NULL until first requested.
+	 */
+	private double[] trust_row = null;
+	
+	/**
+	 * PUSH solver: residual of 'vectorA' against the EigenTrust fixed point.
+	 */
+	private double[] residual;
+	
+	/**
+	 * PUSH solver: work-list (circular) of entries whose residual is large.
+	 */
+	private int[] push_queue;
+	
+	/**
+	 * PUSH solver: head position and length of the work-list.
+	 */
+	private int queue_head = 0, queue_size = 0;
+	
+	/**
+	 * PUSH solver: whether each entry currently sits in the work-list.
 	 */
-	private double[][] normalized;
+	private boolean[] queued;
+	
+	/**
+	 * PUSH solver: whether 'residual' is being maintained for 'vectorA'.
+	 */
+	private boolean residual_valid = false;
+	
+	/**
+	 * Indices of users holding non-zero pre-trust.
+	 */
+	private int[] pretrust_support;
+	
+	/**
+	 * Running count of re-solves actually performed (cache misses).
+	 */
+	private long solve_count = 0;
+	
+	/**
+	 * Running count of full matrix-vector multiplications performed.
+	 */
+	private long multiply_count = 0;
+	
+	/**
+	 * Running count of single-entry residual pushes performed.
+	 */
+	private long push_count = 0;
+	
+	/**
+	 * Scratch used to renormalize each receiver once per update batch.
+	 */
+	private ReceiverBatch batch;
 	
 	
 	// *************************** CONSTRUCTORS ******************************
 
 	/**
-	 * Construct an EigenTM object.
+	 * Construct an EigenTM object, using the original (COLD) solver.
 	 * @param nw Network which this EigenTM will be managing
 	 */
 	public EigenTM(Network nw){
+		this(nw, Solver.COLD);
+	}
+	
+	/**
+	 * Construct an EigenTM object with a particular solver.
+	 * @param nw Network which this EigenTM will be managing
+	 * @param solver Strategy used to re-solve the global trust vector
+	 */
+	public EigenTM(Network nw, Solver solver){
 		this.nw = nw;
+		this.solver = solver;
 		pretrust = new double[nw.GLOBALS.NUM_USERS];
 		vectorA = new double[nw.GLOBALS.NUM_USERS];
 		vectorB = new double[nw.GLOBALS.NUM_USERS];
-		normalized = new double[nw.GLOBALS.NUM_USERS][nw.GLOBALS.NUM_USERS];
 				
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
 			if(nw.GLOBALS.PRE_TRUSTED > 0 && nw.getUser(i).isPreTrusted())
@@ -70,10 +173,29 @@ public class EigenTM implements TrustAlg{
 				pretrust[i] = (0.0);
 			else // (there are no pre-trusted users)
 				pretrust[i] = (1.0 / nw.GLOBALS.NUM_USERS);
-			
-			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++)
-				normalized[i][j] = pretrust[i];
-		} // Initialize pre-trusted vector, and persistent normalized values
+		} // Initialize pre-trusted vector
+		
+		int support = 0;
+		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
+			if(pretrust[i] != 0.0)
+				support++;
+		} // Count users with non-zero pre-trust...
+		pretrust_support = new int[support];
+		support = 0;
+		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
+			if(pretrust[i] != 0.0)
+				pretrust_support[support++] = i;
+		} // ...and then record who they are
+		
+		if(solver == Solver.PUSH){
+			residual = new double[nw.GLOBALS.NUM_USERS];
+			push_queue = new int[nw.GLOBALS.NUM_USERS];
+			queued = new boolean[nw.GLOBALS.NUM_USERS];
+		} // Residual book-keeping is only needed by the PUSH solver
+		
+			// All persistent normalized columns begin as the pre-trust vector
+		normalized = new SparseTrustMatrix(nw.GLOBALS.NUM_USERS, pretrust);
+		batch = new ReceiverBatch(nw.GLOBALS.NUM_USERS);
 	}
 	
 	// ************************** PUBLIC METHODS *****************************
@@ -82,7 +204,12 @@ public class EigenTM implements TrustAlg{
 	 * Interfaced: Text name of this trust algorithm (spaces are okay).
 	 */
 	public String algName(){
-		return "EigenTrust";
+		if(solver == Solver.WARM)
+			return "EigenTrust (warm-start)";
+		else if(solver == Solver.PUSH)
+			return "EigenTrust (push)";
+		else // if(solver == Solver.COLD)
+			return "EigenTrust";
 	}
 	
 	/**
@@ -96,9 +223,41 @@ public class EigenTM implements TrustAlg{
 	 * Interfaced: Given coordinates of a feedback commitment, update as needed.
 	 */
 	public void update(Transaction trans){
-		normalizeVector(trans.getRecv());
+		updateColumn(trans.getRecv());
+	}
+	
+	/**
+	 * Interfaced: Given a batch of feedback commitments, update as needed.
+	 * Each receiver's column is renormalized once, however many it received.
+	 */
+	public void updateBatch(Collection<Transaction> trans_batch){
+		int count = batch.collect(trans_batch);
+		for(int k=0; k < count; k++)
+			updateColumn(batch.receiver(k));
+	}
+	
+	/**
+	 * Interfaced: A user's relations now report another history. Only that
+	 * user's column depends on them, so it is renormalized once.
+	 */
+	public boolean historyChanged(int source){
+		updateColumn(source);
+		return true;
 	}
 	
+	/**
+	 * Renormalize the column of a user whose feedback has changed.
+	 * @param col Identifier of the user whose column should be rebuilt
+	 */
+	private void updateColumn(int col){
+		if(residual_valid)
+			pushColumn(col, -(1-ALPHA) * vectorA[col]);
+		normalizeVector(col);
+		if(residual_valid)
+			pushColumn(col, (1-ALPHA) * vectorA[col]);
+		matrix_version++;
+	} // Column change alters the residual by (1-ALPHA)*(new-old)*x[col]
+	
 	/**
 	 * Interfaced: Compute trust, exporting trust values to Network.
 	 */
@@ -106,28 +265,63 @@ public class EigenTM implements TrustAlg{
 		trustMultiply(user, 8);
 	}
 	
+	/**
+	 * Access the number of times the global vector was actually re-solved.
+	 * @return Number of re-solves (i.e., cache misses) so far
+	 */
+	public long getSolveCount(){
+		return (this.solve_count);
+	}
+	
+	/**
+	 * Access the number of full matrix-vector multiplications performed.
+	 * @return Number of power iterations performed so far
+	 */
+	public long getMultiplyCount(){
+		return (this.multiply_count);
+	}
+	
+	/**
+	 * Access the number of single-entry residual pushes performed.
+	 * @return Number of PUSH solver relaxations performed so far
+	 */
+	public long getPushCount(){
+		return (this.push_count);
+	}
+	
 	
 	// ************************* PROTECTED METHODS ***************************
 	
 	/**
 	 * Perform matrix multiply as a means of aggregating global trust data.
+	 * The global vector does not depend on 'user', so a cached solution is
+	 * re-used until feedback commits. The returned vector is a view onto 
+	 * internal scratch space; it remains valid only until the next call, 
+	 * so callers must copy it to retain it.
 	 * @param user Identifier of user performing trust computation
 	 * @param max_iters Maximum number of multiplications to perform
 	 * @return The converged global trust vector
 	 */
 	protected double[] trustMultiply(int user, int max_iters){
-		vectorA = singleMultiply(pretrust);
-		max_iters--;
-		do{ // Multiply until convergence or maximum iterations reached
-			vectorB = singleMultiply(vectorA);
-			vectorA = singleMultiply(vectorB);
-			max_iters -= 2;
-		} while((max_iters > 0) && !hasConverged(vectorA, vectorB));
+		if((solved_version != matrix_version) || (solved_iters != max_iters)){
+			solved_version = matrix_version;
+			solved_iters = max_iters;
+			solve_count++;
+			trust_row = null;
+			if(solver == Solver.PUSH && residual_valid)
+				pushSolve(max_iters);
+			else if(solver != Solver.COLD && solve_count > 1)
+				warmSolve(max_iters);
+			else
+				coldSolve(max_iters);
+			if(solver == Solver.PUSH && !residual_valid)
+				resetResidual();
+		} // Only re-solve if feedback has changed since the last solve
 		
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			nw.getUserRelation(user, i).setTrust(vectorA[i]);
-		} // Import trust values back into Object form, duplicating vector
-		return vectorA.clone();
+		if(trust_row == null)
+			trust_row = vectorA.clone();
+		nw.getRelations().setTrustRow(user, trust_row); // One row per solve
+		return vectorA;
 	}
 	
 	/**
@@ -148,95 +342,169 @@ public class EigenTM implements TrustAlg{
 	// ************************** PRIVATE METHODS ****************************
 	
 	/**
-	 * Normalize a single vector of the persistent matrix.
-	 * @param new_vec The vector to be normalized
+	 * Solve for the global vector from scratch, starting at pre-trust.
+	 * @param max_iters Maximum number of multiplications to perform
 	 */
-	private void normalizeVector(int new_vec){
-		int fback_int, normalizer = 0;
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			fback_int = calcGlobalFBackInt(nw.getUserRelation(new_vec, i));
-			normalizer += fback_int;
-			normalized[i][new_vec] = fback_int;
-		} // Calculate normalizing sum in first pass
-		
-		if(normalizer == 0){
-			for(int i=0; i < nw.GLOBALS.NUM_USERS; i++)
-				normalized[i][new_vec] = pretrust[i];
-		} else{ // If a user trusts no one, default to the pre_trust vector
-			for(int i=0; i < nw.GLOBALS.NUM_USERS; i++)
-				normalized[i][new_vec] /= (normalizer*1.0);
-		} // Else, do the normalizing division in a second pass
+	private void coldSolve(int max_iters){
+		double delta;
+		singleMultiply(pretrust, vectorA);
+		max_iters--;
+		do{ // Multiply until convergence or maximum iterations reached
+			singleMultiply(vectorA, vectorB);
+			delta = singleMultiply(vectorB, vectorA);
+			max_iters -= 2;
+		} while((max_iters > 0) && (delta > this.EPSILON));
 	}
 	
 	/**
-	 * Calculate a 'feedback integer' using global feedback data.
-	 * @param rel Relation whose 'feedback integer' needs calculated
-	 * @return The calculated 'feedback integer'
+	 * Solve for the global vector, resuming from the previous fixed point.
+	 * @param max_iters Maximum number of multiplications to perform
 	 */
-	private int calcGlobalFBackInt(Relation rel){
-		int fback_int = rel.getPos() - rel.getNeg();
-		if(fback_int < 0)
-			fback_int = 0;
-		return fback_int;
+	private void warmSolve(int max_iters){
+		double delta;
+		double[] swap;
+		max_iters--; // Seeding is free, but keep COLD's multiplication cap
+		do{ // Multiply until convergence or maximum iterations reached
+			delta = singleMultiply(vectorA, vectorB);
+			swap = vectorA;
+			vectorA = vectorB;
+			vectorB = swap;
+			max_iters--;
+		} while((max_iters > 0) && (delta > this.EPSILON));
 	}
-			
+	
 	/**
-	 * Perform a single multiplication iteration per EigenTrust specification.
-	 * @param prev_vector Result of the last multiplication iteration
-	 * @return A vector closer to converged global trust than that passed in
+	 * Solve for the global vector by pushing queued residual mass until
+	 * every entry falls below PUSH_EPSILON. Should that take more work than
+	 * a handful of full multiplications, fall back to the WARM solver.
+	 * @param max_iters Maximum number of multiplications for the fallback
 	 */
-	private double[] singleMultiply(double[] prev_vector){
-		double[] lhs = vectorMatrixMult(prev_vector, normalized);
-		lhs = constantVectorMult((1-ALPHA), lhs);
-		double[] rhs = constantVectorMult(ALPHA, pretrust);
-		return (vectorAdd(lhs,rhs));	
+	private void pushSolve(int max_iters){
+		int cur;
+		double mass;
+		long budget = 4L * nw.GLOBALS.NUM_USERS;
+		while(queue_size > 0){
+			if(budget-- == 0){
+				warmSolve(max_iters);
+				residual_valid = false;
+				return;
+			} // Residual spread too wide; a full iteration is cheaper
+			
+			cur = push_queue[queue_head];
+			queue_head = (queue_head + 1) % push_queue.length;
+			queue_size--;
+			queued[cur] = false;
+			
+			mass = residual[cur];
+			if(Math.abs(mass) <= PUSH_EPSILON)
+				continue;
+			residual[cur] = 0.0;
+			vectorA[cur] += mass;
+			pushColumn(cur, (1-ALPHA) * mass);
+			push_count++;
+		} // Relax entries until the work-list drains
 	}
-		
-		// Linear algebra methods; nothing really unique going on here
-
+	
 	/**
-	 * Linear Algebra: Vector-matrix multiplication.
-	 * @param vector Vector to be multiplied
-	 * @param matrix Matrix to be multiplied
-	 * @return The product vector*matrix, per standard matrix multiply
+	 * Recompute the residual of 'vectorA' exactly and rebuild the work-list.
 	 */
-	private double[] vectorMatrixMult(double[] vector, double[][] matrix){
-		double[] dest = new double[nw.GLOBALS.NUM_USERS];
+	private void resetResidual(){
+		singleMultiply(vectorA, vectorB);
+		queue_head = 0;
+		queue_size = 0;
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			dest[i] = 0.0;
-			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++){
-				dest[i] += (matrix[i][j] * vector[j]);
-			} // Inner loop of matrix-vector multiplication
-		} // Outer loop of matrix-vector multiplication
-		return dest;
+			residual[i] = 0.0;
+			queued[i] = false;
+			addResidual(i, vectorB[i] - vectorA[i]);
+		} // Residual is how far one more iteration would move each entry
+		residual_valid = true;
+		pushSolve(solved_iters);
 	}
 	
 	/**
-	 * Linear Algebra: Constant-vector multiplication.
-	 * @param constant Constant to be multiplied
-	 * @param vector Vector to be multiplied
-	 * @return The product constant*vector, per standard scalar multiply
+	 * Add a scaled column of the persistent matrix into the residual.
+	 * @param col Column of the persistent matrix
+	 * @param scale Constant applied to the column before it is added
 	 */
-	private double[] constantVectorMult(double constant, double[] vector){
-		double[] dest = new double[nw.GLOBALS.NUM_USERS];
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			dest[i] = vector[i] * constant;
-		} // Just multiply every vector element by the constant
-		return dest;
+	private void pushColumn(int col, double scale){
+		if(scale == 0.0)
+			return;
+		int row;
+		if(normalized.isFallback(col)){
+			for(int k=0; k < pretrust_support.length; k++){
+				row = pretrust_support[k];
+				addResidual(row, scale*pretrust[row]);
+			} // Only pre-trusted users receive mass
+		} else{ // Fallback columns are the pre-trust vector
+			for(int k=0; k < normalized.columnSize(col); k++)
+				addResidual(normalized.columnRow(col, k), 
+						scale*normalized.columnValue(col, k));
+		} // Otherwise only walk the explicit entries
 	}
 	
 	/**
-	 * Linear Algebra: Vector-vector addition.
-	 * @param vector1 First vector to be added
-	 * @param vector2 Second vector to be added
-	 * @return The sum vector1+vector2, per standard vector addition
+	 * Add mass to a single residual entry, queuing it if it grows too large.
+	 * @param pos Entry of the residual to modify
+	 * @param mass Amount to be added
 	 */
-	private double[] vectorAdd(double[] vector1, double[] vector2){
-		double[] dest = new double[nw.GLOBALS.NUM_USERS];
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			dest[i] = vector1[i] + vector2[i];
-		} // Just add the elements at corresponding positions
-		return dest;
+	private void addResidual(int pos, double mass){
+		residual[pos] += mass;
+		if(!queued[pos] && (Math.abs(residual[pos]) > PUSH_EPSILON)){
+			queued[pos] = true;
+			push_queue[(queue_head + queue_size) % push_queue.length] = pos;
+			queue_size++;
+		} // Each entry appears in the work-list at most once
+	}
+	
+	/**
+	 * Normalize a single vector of the persistent matrix.
+	 * @param new_vec The vector to be normalized
+	 */
+	private void normalizeVector(int new_vec){
+		RelationStore relations = nw.getRelations();
+		int dest, fback_int, normalizer = 0;
+		normalized.clearColumn(new_vec);
+		for(int k=0; k < relations.touchedCount(new_vec); k++){
+			dest = relations.touchedDest(new_vec, k);
+			fback_int = calcGlobalFBackInt(new_vec, dest);
+			if(fback_int != 0){
+				normalizer += fback_int;
+				normalized.append(new_vec, dest, fback_int);
+			} // Only non-zero feedback integers are stored
+		} // Calculate normalizing sum in first pass; others have no feedback
+		
+		if(normalizer == 0) // If a user trusts no one, default to pre_trust
+			normalized.setFallback(new_vec);
+		else // Else, do the normalizing division in a second pass
+			normalized.divideColumn(new_vec, (normalizer*1.0));
+	}
+	
+	/**
+	 * Calculate a 'feedback integer' using global feedback data.
+	 * @param source Numerical identifier of the User holding the feedback
+	 * @param dest Numerical identifier of the User the feedback regards
+	 * @return The calculated 'feedback integer'
+	 */
+	private int calcGlobalFBackInt(int source, int dest){
+		RelationStore relations = nw.getRelations();
+		int fback_int = relations.getPos(source, dest) - 
+				relations.getNeg(source, dest);
+		if(fback_int < 0)
+			fback_int = 0;
+		return fback_int;
+	}
+			
+	/**
+	 * Perform a single multiplication iteration per EigenTrust specification,
+	 * fusing the scale, pre-trust addition, and convergence test into one pass.
+	 * @param prev_vector Result of the last multiplication iteration
+	 * @param next_vector Vector receiving the next iteration (overwritten)
+	 * @return Largest element-wise change between the two vectors
+	 */
+	private double singleMultiply(double[] prev_vector, double[] next_vector){
+		multiply_count++;
+		return normalized.multiplyAdd(prev_vector, (1-ALPHA), pretrust, ALPHA, 
+				next_vector);
 	}
 	
 }
@@ -19,7 +19,7 @@ public class EtIncTM extends EigenTM implements TrustAlg{
 	private int cur_skip = 1;
 	
 	/**
-	 * Matrix storing trust values after the *previous* trust calculation.
+	 * Trust vectors from the current and *previous* trust calculations.
 	 */
 	private double[] current, previous;
 	
@@ -32,6 +32,8 @@ public class EtIncTM extends EigenTM implements TrustAlg{
 	 */
 	public EtIncTM(Network nw){
 		super(nw);
+		current = new double[nw.GLOBALS.NUM_USERS];
+		previous = new double[nw.GLOBALS.NUM_USERS];
 	}
 	
 	
@@ -62,22 +64,27 @@ public class EtIncTM extends EigenTM implements TrustAlg{
 	 * Interfaced: Compute trust, exporting trust values to Network.
 	 */
 	public void computeTrust(int user, int cycle){
-		if(cycle == 0)
-			previous = super.trustMultiply(user, 8);
-		else if(cycle % cur_skip == 0){
-			current = super.trustMultiply(user, 8);
+		double[] result;
+		if(cycle == 0){
+			result = super.trustMultiply(user, 8);
+			System.arraycopy(result, 0, previous, 0, result.length);
+		} else if(cycle % cur_skip == 0){
+			result = super.trustMultiply(user, 8);
+			System.arraycopy(result, 0, current, 0, result.length);
 			boolean converged = super.hasConverged(current, previous);
 			if((converged) && (cur_skip != 64))
 				cur_skip *= 2;
 			else if((!converged) && cur_skip != 1)
 				cur_skip /= 2;
 			
-			for(int i=0; i < super.nw.GLOBALS.NUM_USERS; i++){
-				for(int j=0; j < super.nw.GLOBALS.NUM_USERS; j++)
-					nw.getUserRelation(j, i).setTrust(current[i]);
+			double[] row = current.clone();
+			for(int j=0; j < super.nw.GLOBALS.NUM_USERS; j++){
+				nw.getRelations().setTrustRow(j, row);
 			} // Set trust globally, not just one vector as in 'super'
 			
+			double[] swap = previous;
 			previous = current;
+			current = swap;
 		} // Only recalculate every "cur_skip" cycles
 	}
 	
@@ -1,9 +1,10 @@
 package trust_system_lib;
 
+import java.util.Collection;
+
 import core_lib.Network;
-import core_lib.Relation;
+import core_lib.RelationStore;
 import core_lib.Transaction;
-import core_lib.User;
 
 public class MyTrustTM implements TrustAlg {
 
@@ -33,6 +34,16 @@ public class MyTrustTM implements TrustAlg {
 	 */
 	private double[][] normalized;
 
+	/**
+	 * Scratch used to renormalize each receiver once per update batch.
+	 */
+	private ReceiverBatch batch;
+
+	/**
+	 * Scratch row of trust values, copied into the Network once computed.
+	 */
+	private double[] trust_row;
+
 	/**
 	 * Construct a MyTrustTM object.
 	 * @param nw Network which this MycustmTrust will be managing
@@ -43,10 +54,12 @@ public class MyTrustTM implements TrustAlg {
 		//and the normailzed matrix with the values from nw object
 		pretrust = new double[nw.GLOBALS.NUM_USERS];
 		normalized = new double[nw.GLOBALS.NUM_USERS][nw.GLOBALS.NUM_USERS];
+		batch = new ReceiverBatch(nw.GLOBALS.NUM_USERS);
+		trust_row = new double[nw.GLOBALS.NUM_USERS];
 		
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
 			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++){
-				nw.getUserRelation(j, i).setTrust(0.0);
+				nw.getRelations().setTrust(j, i, 0.0);
 			} // Initialize all trust to an identical value 
 		} // Do so for every relation in the network
 	}
@@ -80,25 +93,44 @@ public class MyTrustTM implements TrustAlg {
 		
 	}
 	
+	/**
+	 * Interfaced: Given a batch of feedback commitments, update as needed.
+	 * Each receiver's column is renormalized once, however many it received.
+	 */
+	public void updateBatch(Collection<Transaction> trans_batch){
+		int count = batch.collect(trans_batch);
+		for(int k=0; k < count; k++)
+			normalizeVector(batch.receiver(k));
+	}
+	
+	/**
+	 * Interfaced: A user's relations now report another history. Only that
+	 * user's column depends on them, so it is renormalized once.
+	 */
+	public boolean historyChanged(int source){
+		normalizeVector(source);
+		return true;
+	}
+	
 	/**
 	 * Interfaced: Compute trust, exporting trust values to Network.
 	 */
 	public void computeTrust(int user, int cycle) {
 	
-	    Double Tu;
-	    Relation rel ;
+	    double Tu;
+	    RelationStore relations = nw.getRelations();
 	    System.out.println();
 	    System.out.println("User:" + user);
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-				rel = nw.getUserRelation(user, i);					
 			// Calculate the PeerTrust 
 			//T(u) = ALPHA * SIGMA S(u,i) * Cr(p(u,i) * TF(u,i) + BETA * CF(u)
-			Tu = ALPHA * normalized[i][user] * calcCred(user, i) + (BETA * ContextFactor(rel));
+			Tu = ALPHA * normalized[i][user] * calcCred(user, i) + (BETA * ContextFactor(user, i));
 			//System.out.print(Tu + " ");
 			//System.out.println();
 			//System.out.println(calcCred(user,i) + " ");
-			nw.getUserRelation(user, i).setTrust(Tu);
+			trust_row[i] = Tu;
 		} // Import trust values back into Object form, duplicating vector
+		relations.copyTrustRow(user, trust_row);
 
 	  }
 	
@@ -112,7 +144,7 @@ public class MyTrustTM implements TrustAlg {
 	private void normalizeVector(int uvector){
 		int fback_int, normalizer = 0;
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			fback_int = calcGlobalFBackInt(nw.getUserRelation(uvector, i));
+			fback_int = calcGlobalFBackInt(uvector, i);
 			normalizer += fback_int;
 			normalized[i][uvector] = fback_int;
 		} // Calculate normalizing sum in first pass
@@ -128,12 +160,15 @@ public class MyTrustTM implements TrustAlg {
 	
 	/**
 	 * Calculate a 'feedback integer' using global feedback data.
-	 * @param rel Relation whose 'feedback integer' needs calculated
+	 * @param source Numerical identifier of the User holding the feedback
+	 * @param dest Numerical identifier of the User the feedback regards
 	 * @return The calculated 'feedback integer'
 	 */
-	private int calcGlobalFBackInt(Relation rel){
+	private int calcGlobalFBackInt(int source, int dest){
+		RelationStore relations = nw.getRelations();
 		//System.out.println("Pos:" + rel.getPos() + " Neg: " + rel.getNeg());
-		int fback_int = rel.getPos() - rel.getNeg();
+		int fback_int = relations.getPos(source, dest) - 
+				relations.getNeg(source, dest);
 		if(fback_int < 0)
 			fback_int = 0;
 		return fback_int;
@@ -146,7 +181,7 @@ public class MyTrustTM implements TrustAlg {
 	
 	private double calcCred(int user, int i) {
 		
-		if(nw.getUser(i).getModel() != User.Behavior.USR_GOOD) 
+		if(!nw.getBehaviorIndex().isGood(i)) 
 			return 0.0;
 		else return 0.5;
 		
@@ -154,10 +189,11 @@ public class MyTrustTM implements TrustAlg {
 	
 	/**
 	 * calculate the transaction context factor
-	 * @param rel
+	 * @param user the user computing trust
+	 * @param i the user trust is computed in
 	 * @return the transaction context factor
 	 */
-	private int ContextFactor (Relation rel) {
+	private int ContextFactor (int user, int i) {
 		
 		return 1;
 	}
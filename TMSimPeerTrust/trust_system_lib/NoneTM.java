@@ -18,7 +18,7 @@ public class NoneTM implements TrustAlg{
 	public NoneTM(Network nw){
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
 			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++){
-				nw.getUserRelation(j, i).setTrust(0.0);
+				nw.getRelations().setTrust(j, i, 0.0);
 			} // Initialize all trust to an identical value 
 		} // Do so for every relation in the network
 	}
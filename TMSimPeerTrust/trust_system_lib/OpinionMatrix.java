@@ -0,0 +1,399 @@
+package trust_system_lib;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The OpinionMatrix class stores a square matrix of Subjective Logic
+ * opinions as four flat, row-major planes of primitives (one per Opinion
+ * field), so that TNA-SL can 'multiply' matrices without allocating an
+ * Opinion object per cell. The operator math mirrors that of Opinion.
+ * Squaring is tiled for cache locality and its rows are split over the
+ * shared TrustPool; every entry is still folded in the same order.
+ */
+class OpinionMatrix{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Number of destination rows sharing each pass over a source row.
+	 */
+	private static final int ROW_TILE = 8;
+
+	/**
+	 * Number of columns per tile; sized so a tile of accumulators stays
+	 * resident in cache while the source rows stream through it.
+	 */
+	private static final int COL_TILE = 256;
+
+	/**
+	 * Dimension of this (square) matrix.
+	 */
+	private final int n;
+
+	/**
+	 * Belief plane, indexed (row*n)+col.
+	 */
+	private final double[] b;
+
+	/**
+	 * Disbelief plane, indexed (row*n)+col.
+	 */
+	private final double[] d;
+
+	/**
+	 * Uncertainty plane, indexed (row*n)+col.
+	 */
+	private final double[] u;
+
+	/**
+	 * Base-rate plane, indexed (row*n)+col.
+	 */
+	private final double[] a;
+
+	/**
+	 * Scratch planes holding one row under relaxRow(); allocated on demand.
+	 */
+	private double[] row_b, row_d, row_u;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct an OpinionMatrix. All entries begin as the zero Opinion.
+	 * @param n Dimension of the matrix (number of users)
+	 */
+	OpinionMatrix(int n){
+		this.n = n;
+		this.b = new double[n * n];
+		this.d = new double[n * n];
+		this.u = new double[n * n];
+		this.a = new double[n * n];
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Set every field of a single matrix entry.
+	 * @param row Row of the entry
+	 * @param col Column of the entry
+	 * @param b Belief
+	 * @param d Disbelief
+	 * @param u Uncertainty
+	 * @param a Base-rate
+	 */
+	void set(int row, int col, double b, double d, double u, double a){
+		int idx = (row * n) + col;
+		this.b[idx] = b;
+		this.d[idx] = d;
+		this.u[idx] = u;
+		this.a[idx] = a;
+	}
+
+	/**
+	 * Update a single entry using feedback data, as in Opinion.edit().
+	 * @param row Row of the entry
+	 * @param col Column of the entry
+	 * @param pos_fbacks Number of positive feedbacks
+	 * @param neg_fbacks Number of negative feedbacks
+	 * @return TRUE if the entry changed as a result; FALSE otherwise
+	 */
+	boolean edit(int row, int col, int pos_fbacks, int neg_fbacks){
+		int idx = (row * n) + col;
+		double old_b = b[idx], old_d = d[idx];
+		b[idx] = (pos_fbacks / (pos_fbacks + neg_fbacks + 2.0));
+		d[idx] = (neg_fbacks / (pos_fbacks + neg_fbacks + 2.0));
+		u[idx] = (1.0 - b[idx] - d[idx]);
+		return ((b[idx] != old_b) || (d[idx] != old_d));
+	}
+
+	/**
+	 * Determine whether an entry holds any belief (i.e., is a trust edge).
+	 * @param row Row of the entry
+	 * @param col Column of the entry
+	 * @return TRUE if the Opinion at (row, col) has non-zero belief
+	 */
+	boolean believes(int row, int col){
+		return (b[(row * n) + col] > 0.0);
+	}
+
+	/**
+	 * Calculate the expected value of a single entry.
+	 * @param row Row of the entry
+	 * @param col Column of the entry
+	 * @return The expected value of the Opinion at (row, col)
+	 */
+	double expectedValue(int row, int col){
+		int idx = (row * n) + col;
+		return (b[idx] + (a[idx] * u[idx]));
+	}
+
+	/**
+	 * Overwrite this matrix with the contents of another.
+	 * @param that Matrix of identical dimension to be copied
+	 */
+	void copyFrom(OpinionMatrix that){
+		System.arraycopy(that.b, 0, this.b, 0, n * n);
+		System.arraycopy(that.d, 0, this.d, 0, n * n);
+		System.arraycopy(that.u, 0, this.u, 0, n * n);
+		System.arraycopy(that.a, 0, this.a, 0, n * n);
+	}
+
+	/**
+	 * Overwrite a single row of this matrix with that of another.
+	 * @param that Matrix of identical dimension to be copied from
+	 * @param row Row to be copied
+	 */
+	void copyRow(OpinionMatrix that, int row){
+		int off = (row * n);
+		System.arraycopy(that.b, off, this.b, off, n);
+		System.arraycopy(that.d, off, this.d, off, n);
+		System.arraycopy(that.u, off, this.u, off, n);
+		System.arraycopy(that.a, off, this.a, off, n);
+	}
+
+	/**
+	 * Relax a single row of this (max-confidence) matrix against the whole
+	 * matrix: row 'i' of its TNA-SL square is computed, skipping chains
+	 * through users 'i' holds no belief in, and entries improving upon row
+	 * 'i' are copied into it. Base-rates are taken from row 0 of 'base', as
+	 * the full square does.
+	 * @param i Row to be relaxed
+	 * @param base Matrix of persistent Opinions supplying base-rates
+	 * @return TRUE if any entry of row 'i' was improved; FALSE otherwise
+	 */
+	boolean relaxRow(int i, OpinionMatrix base){
+		if(row_b == null){
+			row_b = new double[n];
+			row_d = new double[n];
+			row_u = new double[n];
+		} // Scratch space is only needed by incremental users
+
+		int row = (i * n), k_row;
+		double ik_b;
+		boolean seeded = false;
+		for(int k=0; k < n; k++){
+			ik_b = b[row + k];
+			if(ik_b == 0.0)
+				continue;
+			k_row = (k * n);
+			if(!seeded){
+				for(int j=0; j < n; j++){
+					row_b[j] = ik_b * b[k_row + j];
+					row_d[j] = ik_b * d[k_row + j];
+					row_u[j] = (1.0 - row_b[j] - row_d[j]);
+				} // The first discount is not consensus'ed; not monotonic
+				seeded = true;
+			} else{
+				for(int j=0; j < n; j++){
+					consensus(row_b, row_d, row_u, j, ik_b * b[k_row + j], 
+							ik_b * d[k_row + j]);
+				} // Discount (i->k->j), then consensus into the row
+			} // Only chains through believed users carry any weight
+		} // Fold over every intermediate user 'k'
+		if(!seeded)
+			return false;
+
+		boolean row_modified = false;
+		for(int j=0; j < n; j++){
+			if(improvedBy(row + j, row_b[j], row_u[j])){
+				b[row + j] = row_b[j];
+				d[row + j] = row_d[j];
+				u[row + j] = row_u[j];
+				a[row + j] = base.a[j];
+				row_modified = true;
+			} // Flag flips if an improvement is copied in
+		} // Fold the relaxed row into this one
+		return (row_modified);
+	}
+
+	/**
+	 * Complete a single multiplication per the TNA-SL specification, storing
+	 * the square of this matrix into 'dest'. Each destination entry is the
+	 * consensus (folded in order of 'k') of the discounted chains i->k->j.
+	 * Entries improving upon their counterpart in 'max' are copied there.
+	 * @param dest Matrix receiving the square (overwritten; not 'this')
+	 * @param max Matrix of max-confidence Opinions seen thus far
+	 * @return TRUE if any entry of 'max' was improved; FALSE otherwise
+	 */
+	boolean square(OpinionMatrix dest, OpinionMatrix max){
+		ForkJoinPool pool = TrustPool.poolFor((long)n * n * n);
+		if(pool == null)
+			return squareRows(dest, max, 0, n);
+
+		int blocks = Math.min(TrustPool.getThreads(), n);
+		boolean[] block_modified = new boolean[blocks];
+		RowBlock[] tasks = new RowBlock[blocks];
+		for(int blk=0; blk < blocks; blk++){
+			tasks[blk] = new RowBlock(dest, max, block_modified, blk, 
+					(int)(((long)n * blk) / blocks), 
+					(int)(((long)n * (blk+1)) / blocks));
+		} // Rows cost the same, so split them evenly
+		pool.invoke(new RecursiveAction(){
+			protected void compute(){
+				invokeAll(tasks);
+			}
+		});
+
+		boolean max_modified = false;
+		for(int blk=0; blk < blocks; blk++)
+			max_modified = (max_modified || block_modified[blk]);
+		return (max_modified);
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Serial kernel behind square(), restricted to a range of rows. Rows are
+	 * computed in tiles: 'dest' itself accumulates the consensus of each
+	 * tile while successive source rows 'k' are streamed through it, which
+	 * reads every plane row-wise yet preserves the per-entry fold order.
+	 * @param dest Matrix receiving the square
+	 * @param max Matrix of max-confidence Opinions seen thus far
+	 * @param lo First row to compute (inclusive)
+	 * @param hi Last row to compute (exclusive)
+	 * @return TRUE if any entry of 'max' in range was improved
+	 */
+	private boolean squareRows(OpinionMatrix dest, OpinionMatrix max, 
+			int lo, int hi){
+		final double[] acc_b = dest.b, acc_d = dest.d, acc_u = dest.u;
+		int i_end, j_end, row, k_row, idx;
+		double ik_b, disc_b, disc_d;
+		boolean max_modified = false;
+		for(int ii=lo; ii < hi; ii+=ROW_TILE){
+			i_end = Math.min(ii + ROW_TILE, hi);
+			for(int jj=0; jj < n; jj+=COL_TILE){
+				j_end = Math.min(jj + COL_TILE, n);
+
+				for(int i=ii; i < i_end; i++){
+					row = (i * n);
+					ik_b = b[row];
+					for(int j=jj; j < j_end; j++){
+						acc_b[row + j] = ik_b * b[j];
+						acc_d[row + j] = ik_b * d[j];
+						acc_u[row + j] = (1.0 - acc_b[row + j] - acc_d[row + j]);
+						dest.a[row + j] = a[j];
+					} // The first discount is not consensus'ed; not monotonic
+				} // Seed the tile with chains through user 0
+
+				for(int k=1; k < n; k++){
+					k_row = (k * n);
+					for(int i=ii; i < i_end; i++){
+						row = (i * n);
+						ik_b = b[row + k];
+						for(int j=jj; j < j_end; j++){
+							idx = row + j;
+							disc_b = ik_b * b[k_row + j];
+							disc_d = ik_b * d[k_row + j];
+							consensus(acc_b, acc_d, acc_u, idx, disc_b, disc_d);
+						} // Discount (i->k->j), then consensus into the tile
+					} // Every row of the tile shares source row 'k'
+				} // Stream all remaining source rows through the tile
+
+				for(int i=ii; i < i_end; i++){
+					row = (i * n);
+					for(int j=jj; j < j_end; j++){
+						idx = row + j;
+						if(max.improvedBy(idx, acc_b[idx], acc_u[idx])){
+							max.b[idx] = acc_b[idx];
+							max.d[idx] = acc_d[idx];
+							max.u[idx] = acc_u[idx];
+							max.a[idx] = dest.a[idx];
+							max_modified = true;
+						} // Flag flips if a copy to 'max' is made
+					}
+				} // Fold the finished tile into 'max'
+			} // Tiles across the columns
+		} // Tiles down the rows
+		return (max_modified);
+	}
+
+	/**
+	 * Consensus a discounted Opinion into an accumulator entry, in place.
+	 * @param acc_b Belief plane of the accumulator
+	 * @param acc_d Disbelief plane of the accumulator
+	 * @param acc_u Uncertainty plane of the accumulator
+	 * @param idx Index of the accumulator entry
+	 * @param disc_b Belief of the discounted Opinion
+	 * @param disc_d Disbelief of the discounted Opinion
+	 */
+	private static void consensus(double[] acc_b, double[] acc_d, 
+			double[] acc_u, int idx, double disc_b, double disc_d){
+		double disc_u = (1.0 - disc_b - disc_d);
+		double cur_u = acc_u[idx];
+		if((cur_u == 0.0) && (disc_u == 0.0)){
+			acc_b[idx] = ((acc_b[idx] + disc_b) / 2.0);
+			acc_d[idx] = (1.0 - acc_b[idx]);
+			acc_u[idx] = 0.0;
+		} else{
+			double denom = ((cur_u + disc_u) - (cur_u * disc_u));
+			double new_b = (((acc_b[idx] * disc_u) + (disc_b * cur_u)) / denom);
+			double new_d = (((acc_d[idx] * disc_u) + (disc_d * cur_u)) / denom);
+			acc_b[idx] = new_b;
+			acc_d[idx] = new_d;
+			acc_u[idx] = (1.0 - new_b - new_d);
+		} // Math differs based on uncertainty values
+	}
+
+	/**
+	 * Determine if an Opinion beats an entry of this matrix, on the basis
+	 * of confidence=(1-uncertainty), ties broken by belief (see Opinion).
+	 * @param idx Flat index of the entry being compared against
+	 * @param new_b Belief of the challenging Opinion
+	 * @param new_u Uncertainty of the challenging Opinion
+	 * @return TRUE if the challenger is strictly greater; FALSE otherwise
+	 */
+	private boolean improvedBy(int idx, double new_b, double new_u){
+		if(new_u < u[idx])
+			return true;
+		else if(new_u > u[idx])
+			return false;
+		return (new_b > b[idx]);
+	}
+
+	// ************************** PRIVATE CLASSES ****************************
+
+	/**
+	 * The RowBlock class is a ForkJoin task squaring one block of rows,
+	 * recording whether it improved 'max' into a shared flag array.
+	 */
+	private class RowBlock extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Matrices as passed to square().
+		 */
+		private final OpinionMatrix dest, max;
+
+		/**
+		 * Per-block flags, reduced by square() once all blocks finish.
+		 */
+		private final boolean[] block_modified;
+
+		/**
+		 * Slot of 'block_modified' this task writes, and its rows [lo..hi).
+		 */
+		private final int block, lo, hi;
+
+		/**
+		 * Construct a RowBlock over rows [lo..hi) of a square() call.
+		 */
+		RowBlock(OpinionMatrix dest, OpinionMatrix max, 
+				boolean[] block_modified, int block, int lo, int hi){
+			this.dest = dest;
+			this.max = max;
+			this.block_modified = block_modified;
+			this.block = block;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		/**
+		 * Square this block of rows and record whether 'max' improved.
+		 */
+		protected void compute(){
+			block_modified[block] = squareRows(dest, max, lo, hi);
+		}
+	}
+
+}
@@ -1,9 +1,10 @@
 package trust_system_lib;
 
+import java.util.Collection;
+
 import core_lib.Network;
-import core_lib.Relation;
+import core_lib.RelationStore;
 import core_lib.Transaction;
-import core_lib.User;
 
 public class PeerTrustTM implements TrustAlg {
 
@@ -32,6 +33,21 @@ public class PeerTrustTM implements TrustAlg {
 	 * Matrix storing persistent normalized values.
 	 */
 	private double[][] normalized;
+	
+	/**
+	 * Whether each column of 'normalized' holds the pre_trust vector.
+	 */
+	private boolean[] fallback;
+
+	/**
+	 * Scratch used to renormalize each receiver once per update batch.
+	 */
+	private ReceiverBatch batch;
+
+	/**
+	 * Scratch row of trust values, copied into the Network once computed.
+	 */
+	private double[] trust_row;
 
 	/**
 	 * Construct a PeerTrustTM object.
@@ -43,10 +59,13 @@ public class PeerTrustTM implements TrustAlg {
 		//and the normailzed matrix with the values from nw object
 		pretrust = new double[nw.GLOBALS.NUM_USERS];
 		normalized = new double[nw.GLOBALS.NUM_USERS][nw.GLOBALS.NUM_USERS];
+		fallback = new boolean[nw.GLOBALS.NUM_USERS];
+		batch = new ReceiverBatch(nw.GLOBALS.NUM_USERS);
+		trust_row = new double[nw.GLOBALS.NUM_USERS];
 		
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
 			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++){
-				nw.getUserRelation(j, i).setTrust(0.0);
+				nw.getRelations().setTrust(j, i, 0.0);
 			} // Initialize all trust to an identical value 
 		} // Do so for every relation in the network
 	}
@@ -80,25 +99,44 @@ public class PeerTrustTM implements TrustAlg {
 		normalizeVector (userid);
 	}
 	
+	/**
+	 * Interfaced: Given a batch of feedback commitments, update as needed.
+	 * Each receiver's column is renormalized once, however many it received.
+	 */
+	public void updateBatch(Collection<Transaction> trans_batch){
+		int count = batch.collect(trans_batch);
+		for(int k=0; k < count; k++)
+			normalizeVector(batch.receiver(k));
+	}
+	
+	/**
+	 * Interfaced: A user's relations now report another history. Only that
+	 * user's column depends on them, so it is renormalized once.
+	 */
+	public boolean historyChanged(int source){
+		normalizeVector(source);
+		return true;
+	}
+	
 	/**
 	 * Interfaced: Compute trust, exporting trust values to Network.
 	 */
 	public void computeTrust(int user, int cycle) {
-	    Double Tu=0.0; //calcuated trust
-	    Relation rel;
+	    double Tu=0.0; //calcuated trust
+	    RelationStore relations = nw.getRelations();
 	    //System.out.println();
 	    //System.out.println("User:" + user);
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-				rel = nw.getUserRelation(user, i);					
 			// Calculate PeerTrust T(u) as per the formual below
 			// T(u) = ALPHA * Sum of S(u,i) * Cr(p(u,i) * TF(u,i) + BETA * CF(u)
 			//System.out.println("calculate Tu");
-			Tu += ALPHA * normalized[i][user] * calcCred(user, i) + (BETA * ContextFactor(rel));
+			Tu += ALPHA * normalized[i][user] * calcCred(user, i) + (BETA * ContextFactor(user, i));
 			
 			//System.out.print(Tu + " ");
 			
-			nw.getUserRelation(user, i).setTrust(Tu);
+			trust_row[i] = Tu;
 		} // Import trust values back into Object form, duplicating vector
+		relations.copyTrustRow(user, trust_row);
 		/*
 		System.out.println();
 		
@@ -126,30 +164,48 @@ public class PeerTrustTM implements TrustAlg {
 	 * @param user_vector The vector to be normalized
 	 */
 	private void normalizeVector(int user_vector){
-		int fback_int, normalizer = 0;
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			fback_int = calcGlobalFBackInt(nw.getUserRelation(user_vector, i));
-			normalizer += fback_int;
-			normalized[i][user_vector] = fback_int;
-		} // Calculate normalizing sum in first pass
+		RelationStore relations = nw.getRelations();
+		int dest, fback_int, normalizer = 0;
+		int touched = relations.touchedCount(user_vector);
+		for(int k=0; k < touched; k++){
+			dest = relations.touchedDest(user_vector, k);
+			fback_int = calcGlobalFBackInt(user_vector, dest);
+			if(fback_int != 0)
+				normalizer += fback_int;
+		} // Calculate normalizing sum in first pass; others have no feedback
 		
 		if(normalizer == 0){
+			if(!fallback[user_vector]){
+				for(int i=0; i < nw.GLOBALS.NUM_USERS; i++)
+					normalized[i][user_vector] = pretrust[i];
+				fallback[user_vector] = true;
+			} // Column may already hold the pre_trust vector
+			return;
+		} // If a user trusts no one, default to the pre_trust vector
+		
+		if(fallback[user_vector]){
 			for(int i=0; i < nw.GLOBALS.NUM_USERS; i++)
-				normalized[i][user_vector] = pretrust[i];
-		} else{ // If a user trusts no one, default to the pre_trust vector
-			for(int i=0; i < nw.GLOBALS.NUM_USERS; i++)
-				normalized[i][user_vector] /= (normalizer*1.0);
+				normalized[i][user_vector] = 0.0;
+			fallback[user_vector] = false;
+		} // Untouched entries are otherwise already zero
+		for(int k=0; k < touched; k++){
+			dest = relations.touchedDest(user_vector, k);
+			fback_int = calcGlobalFBackInt(user_vector, dest);
+			normalized[dest][user_vector] = (fback_int / (normalizer*1.0));
 		} // Else, do the normalizing division in a second pass
 	}
 	
 	/**
 	 * Calculate a 'feedback integer' using global feedback data.
-	 * @param rel Relation whose 'feedback integer' needs calculated
+	 * @param source Numerical identifier of the User holding the feedback
+	 * @param dest Numerical identifier of the User the feedback regards
 	 * @return The calculated 'feedback integer'
 	 */
-	private int calcGlobalFBackInt(Relation rel){
+	private int calcGlobalFBackInt(int source, int dest){
+		RelationStore relations = nw.getRelations();
 		//System.out.println("Pos:" + rel.getPos() + " Neg: " + rel.getNeg());
-		int fback_int = rel.getPos() - rel.getNeg();
+		int fback_int = relations.getPos(source, dest) - 
+				relations.getNeg(source, dest);
 		if(fback_int < 0)
 			fback_int = 0;
 		return fback_int;
@@ -162,7 +218,7 @@ public class PeerTrustTM implements TrustAlg {
 	 */
 	private double calcCred(int user, int i) {
 		
-		if(nw.getUser(i).getModel() != User.Behavior.USR_GOOD) 
+		if(!nw.getBehaviorIndex().isGood(i)) 
 			return 0.0;
 		else return 0.5;
 		
@@ -170,10 +226,11 @@ public class PeerTrustTM implements TrustAlg {
 	
 	/**
 	 * calculate the transaction context factor
-	 * @param rel
+	 * @param user the user computing trust
+	 * @param i the user trust is computed in
 	 * @return the transaction context factor
 	 */
-	private int ContextFactor (Relation rel) {
+	private int ContextFactor (int user, int i) {
 		
 		return 1;
 	}
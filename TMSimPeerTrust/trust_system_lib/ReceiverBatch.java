@@ -0,0 +1,67 @@
+package trust_system_lib;
+
+import java.util.Collection;
+
+import core_lib.Transaction;
+
+/**
+ * The ReceiverBatch class reduces a batch of committed transactions to the
+ * distinct users who received files in it. Algorithms whose update() only
+ * renormalizes the receiver's column use it to do so once per receiver.
+ */
+class ReceiverBatch{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Distinct receivers of the last batch, in order of first appearance.
+	 */
+	private int[] receivers;
+
+	/**
+	 * Whether each user appears in 'receivers' (cleared after collection).
+	 */
+	private boolean[] seen;
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a ReceiverBatch for a Network of a given size.
+	 * @param num_users Number of users in the Network (N)
+	 */
+	ReceiverBatch(int num_users){
+		receivers = new int[num_users];
+		seen = new boolean[num_users];
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Collect the distinct receivers of a batch of transactions.
+	 * @param batch Transactions committed together
+	 * @return Number of distinct receivers, accessed via receiver()
+	 */
+	int collect(Collection<Transaction> batch){
+		int count = 0, recv;
+		for(Transaction trans : batch){
+			recv = trans.getRecv();
+			if(!seen[recv]){
+				seen[recv] = true;
+				receivers[count++] = recv;
+			} // Keep only the first transaction per receiver
+		} // Walk the batch in commit order
+		for(int k=0; k < count; k++)
+			seen[receivers[k]] = false;
+		return count;
+	}
+
+	/**
+	 * Access a receiver gathered by the most recent collect().
+	 * @param k Position of the receiver, on [0..collect(batch))
+	 * @return Numerical identifier of the k-th distinct receiver
+	 */
+	int receiver(int k){
+		return (this.receivers[k]);
+	}
+
+}
@@ -0,0 +1,382 @@
+package trust_system_lib;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The SparseTrustMatrix class stores a column-normalized local trust matrix
+ * in primitive sparse form. Columns are edited in place (one per truster),
+ * while multiplication runs over a row-compressed (CSR) snapshot that is
+ * rebuilt lazily after edits. Columns of users who trust no one default to
+ * a shared 'fallback' vector, applied as a rank-one correction. Large
+ * multiplications are split into row blocks over the shared TrustPool; each
+ * row is still summed serially, so results are identical for any thread 
+ * count.
+ */
+public class SparseTrustMatrix{
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Dimension of this (square) matrix.
+	 */
+	private final int n;
+
+	/**
+	 * Vector standing in for every column flagged as 'fallback'.
+	 */
+	private final double[] fallback;
+
+	/**
+	 * Row indices of the non-zero entries in each column.
+	 */
+	private int[][] col_rows;
+
+	/**
+	 * Values of the non-zero entries in each column.
+	 */
+	private double[][] col_vals;
+
+	/**
+	 * Number of non-zero entries stored in each column.
+	 */
+	private int[] col_nnz;
+
+	/**
+	 * Whether each column is currently represented by the fallback vector.
+	 */
+	private boolean[] col_fallback;
+
+	/**
+	 * Row offsets into the CSR snapshot (length n+1).
+	 */
+	private int[] row_ptr;
+
+	/**
+	 * Scratch space of per-row insertion points used while building the CSR.
+	 */
+	private int[] row_fill;
+
+	/**
+	 * Column indices of the CSR snapshot.
+	 */
+	private int[] csr_cols;
+
+	/**
+	 * Values of the CSR snapshot.
+	 */
+	private double[] csr_vals;
+
+	/**
+	 * Whether column edits have been made since the CSR snapshot was built.
+	 */
+	private boolean csr_stale;
+
+	/**
+	 * Per-block maximum deltas, reduced after a parallel multiplication.
+	 */
+	private double[] block_max = new double[0];
+
+	// *************************** CONSTRUCTORS ******************************
+
+	/**
+	 * Construct a SparseTrustMatrix whose columns all begin as 'fallback'.
+	 * @param n Dimension of the matrix (number of users)
+	 * @param fallback Vector used for columns of users who trust no one
+	 */
+	public SparseTrustMatrix(int n, double[] fallback){
+		this.n = n;
+		this.fallback = fallback;
+		col_rows = new int[n][];
+		col_vals = new double[n][];
+		col_nnz = new int[n];
+		col_fallback = new boolean[n];
+		for(int j=0; j < n; j++){
+			col_rows[j] = new int[2];
+			col_vals[j] = new double[2];
+			col_fallback[j] = true;
+		} // Every column starts out empty, deferring to the fallback vector
+		row_ptr = new int[n+1];
+		row_fill = new int[n];
+		csr_cols = new int[0];
+		csr_vals = new double[0];
+		csr_stale = true;
+	}
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Remove all explicit entries from a column, ahead of re-population.
+	 * @param col Column to be cleared
+	 */
+	public void clearColumn(int col){
+		col_nnz[col] = 0;
+		col_fallback[col] = false;
+		csr_stale = true;
+	}
+
+	/**
+	 * Append a non-zero entry to a column. Rows must arrive in order.
+	 * @param col Column receiving the entry
+	 * @param row Row of the entry
+	 * @param val Value of the entry
+	 */
+	public void append(int col, int row, double val){
+		int nnz = col_nnz[col];
+		if(nnz == col_rows[col].length){
+			int[] rows = new int[nnz * 2];
+			double[] vals = new double[nnz * 2];
+			System.arraycopy(col_rows[col], 0, rows, 0, nnz);
+			System.arraycopy(col_vals[col], 0, vals, 0, nnz);
+			col_rows[col] = rows;
+			col_vals[col] = vals;
+		} // Grow column storage geometrically when full
+		col_rows[col][nnz] = row;
+		col_vals[col][nnz] = val;
+		col_nnz[col] = nnz + 1;
+		csr_stale = true;
+	}
+
+	/**
+	 * Divide every explicit entry in a column by a common normalizer.
+	 * @param col Column to be normalized
+	 * @param normalizer Divisor applied to every entry
+	 */
+	public void divideColumn(int col, double normalizer){
+		double[] vals = col_vals[col];
+		for(int k=0; k < col_nnz[col]; k++)
+			vals[k] /= normalizer;
+		csr_stale = true;
+	}
+
+	/**
+	 * Flag a column as being represented by the fallback vector.
+	 * @param col Column to be flagged
+	 */
+	public void setFallback(int col){
+		col_nnz[col] = 0;
+		col_fallback[col] = true;
+		csr_stale = true;
+	}
+
+	/**
+	 * Query whether a column is represented by the fallback vector.
+	 * @param col Column being queried
+	 * @return TRUE if the column defers to the fallback vector; else FALSE
+	 */
+	public boolean isFallback(int col){
+		return (this.col_fallback[col]);
+	}
+
+	/**
+	 * The number of explicit (non-zero) entries stored in a column.
+	 * @param col Column being queried
+	 * @return Number of explicit entries in column 'col'
+	 */
+	public int columnSize(int col){
+		return (this.col_nnz[col]);
+	}
+
+	/**
+	 * Access the row index of an explicit column entry.
+	 * @param col Column being queried
+	 * @param k Position of the entry within the column, on [0..columnSize)
+	 * @return Row index of the k-th explicit entry of column 'col'
+	 */
+	public int columnRow(int col, int k){
+		return (this.col_rows[col][k]);
+	}
+
+	/**
+	 * Access the value of an explicit column entry.
+	 * @param col Column being queried
+	 * @param k Position of the entry within the column, on [0..columnSize)
+	 * @return Value of the k-th explicit entry of column 'col'
+	 */
+	public double columnValue(int col, int k){
+		return (this.col_vals[col][k]);
+	}
+
+	/**
+	 * Fused kernel computing dest = (scale*matrix*src) + (add_scale*addend)
+	 * in a single pass, while measuring how far 'dest' moved from 'src'.
+	 * @param src Vector to be multiplied
+	 * @param scale Constant applied to the matrix-vector product
+	 * @param addend Vector added to the scaled product
+	 * @param add_scale Constant applied to 'addend'
+	 * @param dest Vector receiving the result (overwritten; not 'src')
+	 * @return Largest absolute difference between 'dest' and 'src'
+	 */
+	public double multiplyAdd(double[] src, double scale, double[] addend, 
+			double add_scale, double[] dest){
+		if(csr_stale)
+			buildSnapshot();
+
+		double fallback_mass = 0.0;
+		for(int j=0; j < n; j++){
+			if(col_fallback[j])
+				fallback_mass += src[j];
+		} // Fallback columns collapse to a single rank-one term
+
+		ForkJoinPool pool = TrustPool.poolFor((long)row_ptr[n] + n);
+		if(pool == null)
+			return multiplyRows(0, n, src, scale, addend, add_scale, dest, 
+					fallback_mass);
+
+		int blocks = TrustPool.getThreads();
+		if(block_max.length != blocks)
+			block_max = new double[blocks];
+		RowBlock[] tasks = new RowBlock[blocks];
+		long total = row_ptr[n];
+		int lo = 0, hi;
+		for(int b=0; b < blocks; b++){
+			hi = (b == blocks-1) ? n : splitRow((total * (b+1)) / blocks);
+			hi = Math.max(hi, lo);
+			tasks[b] = new RowBlock(b, lo, hi, src, scale, addend, add_scale, 
+					dest, fallback_mass);
+			lo = hi;
+		} // Carve rows into blocks holding roughly equal numbers of entries
+		pool.invoke(new RecursiveAction(){
+			protected void compute(){
+				invokeAll(tasks);
+			}
+		});
+
+		double max_delta = 0.0;
+		for(int b=0; b < blocks; b++)
+			max_delta = Math.max(max_delta, block_max[b]);
+		return max_delta; // Reduce block maxima in fixed order
+	}
+
+	// ************************** PRIVATE METHODS ****************************
+
+	/**
+	 * Serial kernel behind multiplyAdd(), restricted to a range of rows.
+	 * @param lo First row to compute (inclusive)
+	 * @param hi Last row to compute (exclusive)
+	 * @param src Vector to be multiplied
+	 * @param scale Constant applied to the matrix-vector product
+	 * @param addend Vector added to the scaled product
+	 * @param add_scale Constant applied to 'addend'
+	 * @param dest Vector receiving the result
+	 * @param fallback_mass Sum of 'src' over all fallback columns
+	 * @return Largest absolute difference between 'dest' and 'src' in range
+	 */
+	private double multiplyRows(int lo, int hi, double[] src, double scale, 
+			double[] addend, double add_scale, double[] dest, 
+			double fallback_mass){
+		double sum, delta, max_delta = 0.0;
+		for(int i=lo; i < hi; i++){
+			sum = 0.0;
+			for(int k=row_ptr[i]; k < row_ptr[i+1]; k++)
+				sum += (csr_vals[k] * src[csr_cols[k]]);
+			sum += (fallback[i] * fallback_mass);
+			dest[i] = (sum * scale) + (addend[i] * add_scale);
+			delta = Math.abs(dest[i] - src[i]);
+			if(delta > max_delta)
+				max_delta = delta;
+		} // Gather each row over its explicit entries only
+		return max_delta;
+	}
+
+	/**
+	 * Find the first row whose CSR offset reaches a given entry count.
+	 * @param entries Number of entries that should precede the split
+	 * @return Row index at which to split, on [0..n]
+	 */
+	private int splitRow(long entries){
+		int lo = 0, hi = n, mid;
+		while(lo < hi){
+			mid = (lo + hi) >>> 1;
+			if(row_ptr[mid] < entries)
+				lo = mid + 1;
+			else
+				hi = mid;
+		} // Binary search over the monotone row offsets
+		return lo;
+	}
+
+	/**
+	 * Transpose the column store into the CSR snapshot used for multiplies.
+	 */
+	private void buildSnapshot(){
+		int total = 0;
+		Arrays.fill(row_ptr, 0);
+		for(int j=0; j < n; j++){
+			for(int k=0; k < col_nnz[j]; k++)
+				row_ptr[col_rows[j][k] + 1]++;
+			total += col_nnz[j];
+		} // Count entries per row in a first pass
+		for(int i=0; i < n; i++)
+			row_ptr[i+1] += row_ptr[i];
+
+		if(csr_cols.length < total){
+			csr_cols = new int[total + (total >> 1)];
+			csr_vals = new double[total + (total >> 1)];
+		} // Snapshot storage only grows, amortizing re-allocation
+
+		System.arraycopy(row_ptr, 0, row_fill, 0, n);
+		int pos;
+		for(int j=0; j < n; j++){
+			for(int k=0; k < col_nnz[j]; k++){
+				pos = row_fill[col_rows[j][k]]++;
+				csr_cols[pos] = j;
+				csr_vals[pos] = col_vals[j][k];
+			} // Columns are visited in order, so rows stay column-sorted
+		} // Scatter entries into their rows in a second pass
+		csr_stale = false;
+	}
+
+	// ************************** PRIVATE CLASSES ****************************
+
+	/**
+	 * The RowBlock class is a ForkJoin task computing one block of rows of
+	 * multiplyAdd(), recording its maximum delta into 'block_max'.
+	 */
+	private class RowBlock extends RecursiveAction{
+
+		private static final long serialVersionUID = 1L;
+
+		/**
+		 * Slot of 'block_max' this task writes, and its row range [lo..hi).
+		 */
+		private final int block, lo, hi;
+
+		/**
+		 * Operand vectors, as passed to multiplyAdd().
+		 */
+		private final double[] src, addend, dest;
+
+		/**
+		 * Operand constants, as passed to (or derived in) multiplyAdd().
+		 */
+		private final double scale, add_scale, fallback_mass;
+
+		/**
+		 * Construct a RowBlock over rows [lo..hi) of a multiplyAdd() call.
+		 */
+		RowBlock(int block, int lo, int hi, double[] src, double scale, 
+				double[] addend, double add_scale, double[] dest, 
+				double fallback_mass){
+			this.block = block;
+			this.lo = lo;
+			this.hi = hi;
+			this.src = src;
+			this.scale = scale;
+			this.addend = addend;
+			this.add_scale = add_scale;
+			this.dest = dest;
+			this.fallback_mass = fallback_mass;
+		}
+
+		/**
+		 * Compute this block of rows and record its maximum delta.
+		 */
+		protected void compute(){
+			block_max[block] = multiplyRows(lo, hi, src, scale, addend, 
+					add_scale, dest, fallback_mass);
+		}
+	}
+
+}
@@ -1,7 +1,9 @@
 package trust_system_lib;
 
+import java.util.Collection;
+
 import core_lib.Network;
-import core_lib.Relation;
+import core_lib.RelationStore;
 import core_lib.Transaction;
 import core_lib.User;
 
@@ -29,6 +31,16 @@ public class ThresholdTM implements TrustAlg {
 	 */
 	private double[][] normalized;
 
+	/**
+	 * Scratch used to renormalize each receiver once per update batch.
+	 */
+	private ReceiverBatch batch;
+
+	/**
+	 * Scratch row of trust values, copied into the Network once computed.
+	 */
+	private double[] trust_row;
+
 	/**
 	 * Construct a PeerTrustTM object.
 	 * @param nw Network which this PeerTrust will be managing
@@ -39,10 +51,12 @@ public class ThresholdTM implements TrustAlg {
 		//and the normailzed matrix with the values from nw object
 		pretrust = new double[nw.GLOBALS.NUM_USERS];
 		normalized = new double[nw.GLOBALS.NUM_USERS][nw.GLOBALS.NUM_USERS];
+		batch = new ReceiverBatch(nw.GLOBALS.NUM_USERS);
+		trust_row = new double[nw.GLOBALS.NUM_USERS];
 		
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
 			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++){
-				nw.getUserRelation(j, i).setTrust(0.0);
+				nw.getRelations().setTrust(j, i, 0.0);
 			} // Initialize all trust to an identical value 
 		} // Do so for every relation in the network
 	}
@@ -76,18 +90,35 @@ public class ThresholdTM implements TrustAlg {
 		normalizeVector (userid);
 	}
 	
+	/**
+	 * Interfaced: Given a batch of feedback commitments, update as needed.
+	 * Each receiver's column is renormalized once, however many it received.
+	 */
+	public void updateBatch(Collection<Transaction> trans_batch){
+		int count = batch.collect(trans_batch);
+		for(int k=0; k < count; k++)
+			normalizeVector(batch.receiver(k));
+	}
+	
+	/**
+	 * Interfaced: A user's relations now report another history. Only that
+	 * user's column depends on them, so it is renormalized once.
+	 */
+	public boolean historyChanged(int source){
+		normalizeVector(source);
+		return true;
+	}
+	
 	/**
 	 * Interfaced: Compute trust, exporting trust values to Network.
 	 */
 	public void computeTrust(int user, int cycle) {
-	    Double Tu=0.0; //calcuated trust
-	    Relation rel;
+	    double Tu=0.0; //calcuated trust
+	    RelationStore relations = nw.getRelations();
 	    //System.out.println();
 	    //System.out.println("User:" + user);
 	    
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-				rel = nw.getUserRelation(user, i);	
-				
 			// Calculate PeerTrust T(u) as per the formual below
 			// T(u) = ALPHA * Sum of S(u,i) * Cr(p(u,i) * TF(u,i) + BETA * CF(u)
 			//System.out.println("calculate Tu");
@@ -97,8 +128,9 @@ public class ThresholdTM implements TrustAlg {
 			//Tu += 0;
 			
 			//System.out.print(Tu + " ");		
-			nw.getUserRelation(user, i).setTrust(Tu);
+			trust_row[i] = Tu;
 		} // Import trust values back into Object form, duplicating vector
+		relations.copyTrustRow(user, trust_row);
 		
 	  }
 	
@@ -112,7 +144,7 @@ public class ThresholdTM implements TrustAlg {
 	private void normalizeVector(int user_vector){
 		int fback_int, normalizer = 0;
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			fback_int = calcGlobalFBackInt(nw.getUserRelation(user_vector, i));
+			fback_int = calcGlobalFBackInt(user_vector, i);
 			normalizer += fback_int;
 			normalized[i][user_vector] = fback_int;
 		} // Calculate normalizing sum in first pass
@@ -128,13 +160,16 @@ public class ThresholdTM implements TrustAlg {
 	
 	/**
 	 * Calculate a 'feedback integer' using global feedback data.
-	 * @param rel Relation whose 'feedback integer' needs calculated
+	 * @param source Numerical identifier of the User holding the feedback
+	 * @param dest Numerical identifier of the User the feedback regards
 	 * @return The calculated 'feedback integer'
 	 */
-	private int calcGlobalFBackInt(Relation rel){
+	private int calcGlobalFBackInt(int source, int dest){
+		RelationStore relations = nw.getRelations();
 		//System.out.println("Pos:" + rel.getPos() + " Neg: " + rel.getNeg());
 		// Rp = Min (10, 10 * Du/Dd)
-		int fback_int = rel.getPos() - rel.getNeg();
+		int fback_int = relations.getPos(source, dest) - 
+				relations.getNeg(source, dest);
 		//int fback_int = rel.getPos()/rel.getPos();
 		if(fback_int < 0)
 			fback_int = 0;
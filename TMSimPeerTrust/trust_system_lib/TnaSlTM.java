@@ -6,6 +6,9 @@ import core_lib.*;
 /**
  * The TnaSlTM class conforms to the TrustAlg interface and implements the
  * 'Trust Network Analysis with Subjective Logic' approach of Josang et. al.
+ * In 'incremental' mode the saturated matrix is kept between calls, and only
+ * rows able to reach an edited relation are re-propagated. This approximates
+ * the full computation, which is still used when too many rows are affected.
  */
 public class TnaSlTM implements TrustAlg{
 	
@@ -17,46 +20,132 @@ public class TnaSlTM implements TrustAlg{
 	private Network nw;
 	
 	/**
-	 * Matrix storing persistent Opinion objects for each relation.
+	 * Matrix storing persistent Opinions for each relation.
 	 */
-	private Opinion[][] op_stor;
+	private OpinionMatrix op_stor;
 	
 	/**
 	 * Matrix storing max-confidence Opinions seen during multiplication.
 	 */
-	private Opinion[][] max_matrix;
+	private OpinionMatrix max_matrix;
 	
 	/**
 	 * Scratch space matrix for multiplication purposes.
 	 */
-	private Opinion[][] matrixA;
+	private OpinionMatrix matrixA;
 	
 	/**
 	 * Scratch space matrix for multiplication purposes.
 	 */
-	private Opinion[][] matrixB;
+	private OpinionMatrix matrixB;
+	
+	/**
+	 * Fraction (as a divisor of NUM_USERS) of rows which may be dirtied 
+	 * before an incremental update gives way to a full recomputation.
+	 */
+	private final int DIRTY_DIVISOR = 4;
+	
+	/**
+	 * Whether 'max_matrix' is maintained incrementally between calls.
+	 */
+	private final boolean incremental;
+	
+	/**
+	 * Whether 'max_matrix' holds a result that may be incrementally updated.
+	 */
+	private boolean max_valid = false;
+	
+	/**
+	 * Rows of 'op_stor' edited since 'max_matrix' was last brought current.
+	 */
+	private int[] edited_rows;
+	
+	/**
+	 * Number of valid entries in 'edited_rows'.
+	 */
+	private int edited_count = 0;
+	
+	/**
+	 * Whether each row is listed in 'edited_rows'.
+	 */
+	private boolean[] edited;
+	
+	/**
+	 * Rows which must be re-propagated, in order of discovery.
+	 */
+	private int[] dirty_rows;
+	
+	/**
+	 * Whether each row is listed in 'dirty_rows'.
+	 */
+	private boolean[] dirty;
+	
+	/**
+	 * Circular worklist of dirty rows awaiting relaxation.
+	 */
+	private int[] work_queue;
+	
+	/**
+	 * Whether each row is currently present in 'work_queue'.
+	 */
+	private boolean[] queued;
+	
+	/**
+	 * Number of full (square until saturated) computations performed.
+	 */
+	private int full_count = 0;
+	
+	/**
+	 * Number of single-row relaxations performed by incremental updates.
+	 */
+	private int relax_count = 0;
+	
+	/**
+	 * Scratch row of trust values, copied into the Network once computed.
+	 */
+	private double[] trust_row;
 	
 	// *************************** CONSTRUCTORS ******************************
 
 	/**
 	 * Construct a TnaSlTM object.
-	 * @param nw Network which this EtIncTM will be managing
+	 * @param nw Network which this TnaSlTM will be managing
 	 */
 	public TnaSlTM(Network nw){
+		this(nw, false);
+	}
+	
+	/**
+	 * Construct a TnaSlTM object, choosing how trust is recomputed.
+	 * @param nw Network which this TnaSlTM will be managing
+	 * @param incremental TRUE to re-propagate only rows affected by edits
+	 */
+	public TnaSlTM(Network nw, boolean incremental){
 		this.nw = nw;
-		op_stor = new Opinion[nw.GLOBALS.NUM_USERS][nw.GLOBALS.NUM_USERS];
-		matrixA = new Opinion[nw.GLOBALS.NUM_USERS][nw.GLOBALS.NUM_USERS];
-		matrixB = new Opinion[nw.GLOBALS.NUM_USERS][nw.GLOBALS.NUM_USERS];
-		max_matrix = new Opinion[nw.GLOBALS.NUM_USERS][nw.GLOBALS.NUM_USERS];
+		this.incremental = incremental;
+		op_stor = new OpinionMatrix(nw.GLOBALS.NUM_USERS);
+		matrixA = new OpinionMatrix(nw.GLOBALS.NUM_USERS);
+		matrixB = new OpinionMatrix(nw.GLOBALS.NUM_USERS);
+		max_matrix = new OpinionMatrix(nw.GLOBALS.NUM_USERS);
+		trust_row = new double[nw.GLOBALS.NUM_USERS];
 		
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
 			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++){
 				if(nw.getUser(i).isPreTrusted())
-					op_stor[i][j] = new Opinion(0.0, 0.0, 1.0, 1.0);
+					op_stor.set(i, j, 0.0, 0.0, 1.0, 1.0);
 				else
-					op_stor[i][j] = new Opinion(0.0, 0.0, 1.0, 0.5);
+					op_stor.set(i, j, 0.0, 0.0, 1.0, 0.5);
 			} // Initialize persistent Opinion values
 		} // Do so for every relation in the network
+		
+		if(incremental){
+			edited_rows = new int[nw.GLOBALS.NUM_USERS];
+			edited = new boolean[nw.GLOBALS.NUM_USERS];
+			dirty_rows = new int[nw.GLOBALS.NUM_USERS];
+			dirty = new boolean[nw.GLOBALS.NUM_USERS];
+			work_queue = new int[nw.GLOBALS.NUM_USERS];
+			queued = new boolean[nw.GLOBALS.NUM_USERS];
+		} // Bookkeeping only needed for incremental updates
 	}
 
 	// ************************** PUBLIC METHODS *****************************
@@ -65,6 +154,8 @@ public class TnaSlTM implements TrustAlg{
 	 * Interfaced: Text name of this trust algorithm (spaces are okay).
 	 */
 	public String algName(){
+		if(incremental)
+			return "TNA-SL (incremental)";
 		return "TNA-SL";
 	}
 	
@@ -81,71 +172,159 @@ public class TnaSlTM implements TrustAlg{
 	public void update(Transaction trans){
 		int new_row = trans.getRecv();
 		int new_vec = trans.getSend();
-		int pos_fbacks = nw.getUserRelation(new_vec, new_row).getPos();
-		int neg_fbacks = nw.getUserRelation(new_vec, new_row).getNeg();
-		op_stor[new_row][new_vec].edit(pos_fbacks, neg_fbacks);	
+		int pos_fbacks = nw.getRelations().getPos(new_vec, new_row);
+		int neg_fbacks = nw.getRelations().getNeg(new_vec, new_row);
+		boolean changed = op_stor.edit(new_row, new_vec, pos_fbacks, 
+				neg_fbacks);
+		if(incremental && changed && !edited[new_row]){
+			edited[new_row] = true;
+			edited_rows[edited_count++] = new_row;
+		} // Remember which rows must be re-propagated
 	}
 	
 	/**
 	 * Interfaced: Compute trust, exporting trust values to Network.
 	 */
 	public void computeTrust(int user, int cycle){
+		if(!incremental || !max_valid)
+			fullCompute();
+		else if(edited_count > 0)
+			incrementalCompute();
+		
 		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++)
-				max_matrix[i][j] = op_stor[i][j];
-		} // Initialize the 'max value' matrix for this run
+			trust_row[i] = max_matrix.expectedValue(i, user);
+		} // Export Opinion expected values's as trust values
+		nw.getRelations().copyTrustRow(user, trust_row);
+	}
+	
+	/**
+	 * Access the number of full trust computations performed.
+	 * @return Number of times 'max_matrix' was squared until saturated
+	 */
+	public int getFullCount(){
+		return (this.full_count);
+	}
+	
+	/**
+	 * Access the number of single-row relaxations performed.
+	 * @return Number of rows re-propagated by incremental updates
+	 */
+	public int getRelaxCount(){
+		return (this.relax_count);
+	}
+	
+	// ************************** PRIVATE METHODS ****************************
+	
+	/**
+	 * Recompute 'max_matrix' from scratch, squaring until it saturates.
+	 */
+	private void fullCompute(){
+		full_count++;
+		max_matrix.copyFrom(op_stor);
 		
-		matrixA = subj_square(op_stor);
-		while(matrixA != null){
-			matrixB = subj_square(matrixA);
-			if(matrixB == null)
+		boolean max_modified = op_stor.square(matrixA, max_matrix);
+		while(max_modified){
+			max_modified = matrixA.square(matrixB, max_matrix);
+			if(!max_modified)
 				break;
-			matrixA = subj_square(matrixB);
+			max_modified = matrixB.square(matrixA, max_matrix);
 		} // Multiply until 'max_matrix' is saturated
 		
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			Relation rel = nw.getUserRelation(user, i);
-			rel.setTrust(max_matrix[i][user].expectedValue());
-		} // Export Opinion expected values's as trust values
+		if(incremental){
+			for(int i=0; i < edited_count; i++)
+				edited[edited_rows[i]] = false;
+			edited_count = 0;
+			max_valid = true;
+		} // A fresh result absorbs all outstanding edits
 	}
 	
-	// ************************** PRIVATE METHODS ****************************
-
 	/**
-	 * Complete a single multiplication per the TNA-SL specification.
-	 * @param source The Opinion matrix which is to be squared
-	 * @return Resulting matrix if multiply improved trust, NULL otherwise
+	 * Bring 'max_matrix' current by re-propagating only the edited rows and
+	 * the rows which believe in them (transitively). Dirty rows are reset to
+	 * their persistent Opinions, then relaxed via a worklist until no row
+	 * improves. Falls back to fullCompute() if too many rows are dirtied or
+	 * relaxation fails to settle.
 	 */
-	private Opinion[][] subj_square(Opinion[][] source){
-		Opinion op_holder; Opinion[][] dest;
-		dest = new Opinion[nw.GLOBALS.NUM_USERS][nw.GLOBALS.NUM_USERS];
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++){
-				for(int k=0; k < nw.GLOBALS.NUM_USERS; k++){
-					if(k==0)
-						dest[i][j] = source[i][0].discount(source[0][j]);
-					else{
-						op_holder = source[i][k].discount(source[k][j]);
-						dest[i][j] = dest[i][j].consensus(op_holder);
-					} // Don't consensus first discount; it isn't monotonic
-				} // The inner loop of matrix multiply
-			} // Discount and then consensus Opinions
-		}  // Perform 'multiply' over all user vectors and rows
+	private void incrementalCompute(){
+		int num_users = nw.GLOBALS.NUM_USERS;
+		int dirty_limit = (num_users / DIRTY_DIVISOR);
+		int dirty_count = 0;
+		for(int i=0; i < edited_count; i++){
+			dirty[edited_rows[i]] = true;
+			dirty_rows[dirty_count++] = edited_rows[i];
+		} // Edited rows seed the dirty set
 		
-		boolean max_modified = false;
-		for(int i=0; i < nw.GLOBALS.NUM_USERS; i++){
-			for(int j=0; j < nw.GLOBALS.NUM_USERS; j++){
-				if(dest[i][j].compareTo(max_matrix[i][j]) == 1){
-					max_matrix[i][j] = dest[i][j].clone();
-					max_modified = true;
-				} // Flag flips if a copy to 'max_value' is made
-			} // Update the 'max_value' matrix at each position
-		} // Iterate over all matrix positions	
-
-		if(max_modified)
-			return dest;
-		else 
-			return null;
+		int cur_row;
+		for(int pos=0; (pos < dirty_count) && (dirty_count <= dirty_limit); 
+				pos++){
+			cur_row = dirty_rows[pos];
+			for(int i=0; i < num_users; i++){
+				if(!dirty[i] && op_stor.believes(i, cur_row)){
+					dirty[i] = true;
+					dirty_rows[dirty_count++] = i;
+				} // Any chain through a dirty row must be re-propagated
+			} // Scan the column for direct believers
+		} // Breadth-first search over reversed belief edges
+		
+		if(dirty_count > dirty_limit){
+			clearDirty(dirty_count);
+			fullCompute();
+			return;
+		} // The affected neighbourhood is too large to be worthwhile
+		
+		int head = 0, size = 0;
+		for(int i=0; i < dirty_count; i++){
+			max_matrix.copyRow(op_stor, dirty_rows[i]);
+			queued[dirty_rows[i]] = true;
+			work_queue[size++] = dirty_rows[i];
+		} // Reset dirty rows, and queue them all for relaxation
+		
+		int rounds = 1;
+		while((1 << rounds) < num_users)
+			rounds++;
+		int budget = (dirty_count * (rounds + 1));
+		while(size > 0){
+			if(budget-- == 0){
+				while(size > 0){
+					queued[work_queue[head]] = false;
+					head = (head + 1) % num_users;
+					size--;
+				} // Empty the worklist before giving up
+				clearDirty(dirty_count);
+				fullCompute();
+				return;
+			} // Full computation saturates in about log2(N) squarings
+			
+			cur_row = work_queue[head];
+			head = (head + 1) % num_users;
+			size--;
+			queued[cur_row] = false;
+			relax_count++;
+			if(!max_matrix.relaxRow(cur_row, op_stor))
+				continue;
+			for(int i=0; i < dirty_count; i++){
+				int pred = dirty_rows[i];
+				if(!queued[pred] && max_matrix.believes(pred, cur_row)){
+					queued[pred] = true;
+					work_queue[(head + size) % num_users] = pred;
+					size++;
+				} // Rows building upon an improved row must be revisited
+			} // Only dirty rows can reach an improved (dirty) row
+		} // Relax rows until none improves
+		
+		clearDirty(dirty_count);
+		for(int i=0; i < edited_count; i++)
+			edited[edited_rows[i]] = false;
+		edited_count = 0;
 	}
-
+	
+	/**
+	 * Reset the dirty-row bookkeeping after an incremental update.
+	 * @param dirty_count Number of valid entries in 'dirty_rows'
+	 */
+	private void clearDirty(int dirty_count){
+		for(int i=0; i < dirty_count; i++)
+			dirty[dirty_rows[i]] = false;
+	}
+	
 }
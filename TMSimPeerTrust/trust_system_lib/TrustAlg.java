@@ -1,6 +1,8 @@
 
 package trust_system_lib;
 
+import java.util.Collection;
+
 import core_lib.*;
 
 /**
@@ -29,6 +31,29 @@ public interface TrustAlg{
 	 */
 	public void update(Transaction trans);
 	
+	/**
+	 * Given a batch of feedback commitments made in the same cycle, update
+	 * as needed. All of the batch's feedback has already been committed when
+	 * this is called. By default, each transaction is handled by update().
+	 * @param trans_batch Transactions detailing feedback commitments
+	 */
+	public default void updateBatch(Collection<Transaction> trans_batch){
+		for(Transaction trans : trans_batch)
+			update(trans);
+	}
+	
+	/**
+	 * Notification that every relation held by a user now reports another
+	 * history (see RelationStore.setSourceHistory()). Algorithms which can
+	 * account for this directly should do so and return TRUE. By default it
+	 * is left to the caller, which replays one update() per relation.
+	 * @param source Identifier of user whose relations changed history
+	 * @return TRUE if the change has been accounted for; else FALSE
+	 */
+	public default boolean historyChanged(int source){
+		return false;
+	}
+	
 	/**
 	 * Compute trust, exporting trust values to Network
 	 * @param user Identifier of user performing trust computation
@@ -0,0 +1,67 @@
+package trust_system_lib;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The TrustPool class manages the ForkJoinPool shared by all trust
+ * algorithm kernels. It is configured once by the simulator driver; until
+ * then (or when configured with a single thread) kernels run serially.
+ */
+public class TrustPool{
+
+	// ************************** PUBLIC FIELDS ******************************
+
+	/**
+	 * Minimum amount of work (roughly, matrix entries touched) a kernel
+	 * should have before it is worth splitting across threads.
+	 */
+	public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+	// ************************** PRIVATE FIELDS *****************************
+
+	/**
+	 * Number of worker threads kernels may use.
+	 */
+	private static int threads = 1;
+
+	/**
+	 * Pool shared by all kernels; NULL when running serially.
+	 */
+	private static ForkJoinPool pool = null;
+
+	// ************************** PUBLIC METHODS *****************************
+
+	/**
+	 * Set the number of worker threads available to trust kernels.
+	 * @param num_threads Number of threads; values below 2 mean serial
+	 */
+	public static synchronized void setThreads(int num_threads){
+		if(pool != null)
+			pool.shutdown();
+		threads = Math.max(1, num_threads);
+		if(threads > 1)
+			pool = new ForkJoinPool(threads);
+		else
+			pool = null;
+	}
+
+	/**
+	 * Access the number of worker threads available to trust kernels.
+	 * @return Number of worker threads (1 when running serially)
+	 */
+	public static int getThreads(){
+		return threads;
+	}
+
+	/**
+	 * Access the shared pool, provided the work is large enough to split.
+	 * @param work Approximate number of entries the kernel will touch
+	 * @return The shared pool, or NULL if the kernel should run serially
+	 */
+	public static ForkJoinPool poolFor(long work){
+		if(work < PARALLEL_THRESHOLD)
+			return null;
+		return pool;
+	}
+
+}